@@ -0,0 +1,102 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.devbliss.doctest;
+
+import java.net.URI;
+
+import de.devbliss.apitester.ApiTest.HTTP_REQUEST;
+
+/**
+ * Describes one request of a batch made by {@link LogicDocTest#makeRequests(java.util.List)}, or
+ * one request made by a test and replayed by {@link LogicDocTest#replayRequests(String,
+ * com.devbliss.doctest.load.LoadProfile)}.
+ */
+public final class BatchRequest {
+
+    private final HTTP_REQUEST method;
+    private final URI uri;
+    private final Object payload;
+
+    private BatchRequest(HTTP_REQUEST method, URI uri, Object payload) {
+        this.method = method;
+        this.uri = uri;
+        this.payload = payload;
+    }
+
+    public static BatchRequest get(URI uri) {
+        return new BatchRequest(HTTP_REQUEST.GET, uri, null);
+    }
+
+    public static BatchRequest post(URI uri) {
+        return post(uri, null);
+    }
+
+    public static BatchRequest post(URI uri, Object payload) {
+        return new BatchRequest(HTTP_REQUEST.POST, uri, payload);
+    }
+
+    public static BatchRequest put(URI uri) {
+        return put(uri, null);
+    }
+
+    public static BatchRequest put(URI uri, Object payload) {
+        return new BatchRequest(HTTP_REQUEST.PUT, uri, payload);
+    }
+
+    public static BatchRequest delete(URI uri) {
+        return delete(uri, null);
+    }
+
+    public static BatchRequest delete(URI uri, Object payload) {
+        return new BatchRequest(HTTP_REQUEST.DELETE, uri, payload);
+    }
+
+    public HTTP_REQUEST getMethod() {
+        return method;
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    public Object getPayload() {
+        return payload;
+    }
+
+    /**
+     * Returns the same request with the given payload, e.g. the payload serialized for the http
+     * client.
+     */
+    BatchRequest withPayload(Object payload) {
+        return new BatchRequest(method, uri, payload);
+    }
+
+    /**
+     * Returns the http method and the path of the request, e.g. <code>"GET /users"</code>, which
+     * the statistics of the requests are grouped by.
+     * 
+     * @return
+     */
+    public String getEndpoint() {
+        String path = uri.getPath();
+        return method + " " + (path == null || path.isEmpty() ? "/" : path);
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + uri;
+    }
+}
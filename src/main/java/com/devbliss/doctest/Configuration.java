@@ -15,6 +15,7 @@
 package com.devbliss.doctest;
 
 import java.io.File;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Doctest Configuration class. Simple instantiation of this object will setup default values.
@@ -24,6 +25,22 @@ import java.io.File;
 public class Configuration {
 
     private String htmlOutputDirectory = new File("").getAbsolutePath() + "/target/site/doctests/";
+    private boolean streamingRender = false;
+    private boolean sharedAssets = false;
+    private boolean deferredIndex = false;
+    private boolean asyncRender = false;
+    private int renderThreads = 1;
+    private long uploadPreviewLimit = 1024 * 1024;
+    private int payloadLimit = 0;
+    private int payloadArrayLimit = 0;
+    private int payloadDepthLimit = 0;
+    private int maxConnections = 20;
+    private int maxConnectionsPerRoute = 20;
+    private long connectionIdleTimeout = 30 * 1000;
+    private ExecutorService requestExecutor = null;
+    private int batchConcurrency = 8;
+    private boolean recordRequests = false;
+    private boolean showRequestMetrics = true;
 
     /**
      * Get absolute path to the output directory
@@ -42,4 +59,312 @@ public class Configuration {
     public void setHtmlOutputDirectory(String htmlOutputDirectory) {
         this.htmlOutputDirectory = htmlOutputDirectory;
     }
+
+    /**
+     * Returns true if the reports are streamed to the disk item by item instead of being built as
+     * one {@link String} in memory.
+     * 
+     * @return the streamingRender
+     */
+    public boolean isStreamingRender() {
+        return streamingRender;
+    }
+
+    /**
+     * Enable or disable the streaming render mode. In this mode, the memory used to render a report
+     * does not depend on the amount and the size of its items.
+     * 
+     * @param streamingRender the streamingRender to set
+     */
+    public void setStreamingRender(boolean streamingRender) {
+        this.streamingRender = streamingRender;
+    }
+
+    /**
+     * Returns true if the css and javascript files are written once into the output directory and
+     * linked by the reports instead of being inlined into each of them.
+     * 
+     * @return the sharedAssets
+     */
+    public boolean isSharedAssets() {
+        return sharedAssets;
+    }
+
+    /**
+     * Enable or disable the shared assets. The shared files get the hash of their content in their
+     * name, so that browsers can cache them.
+     * 
+     * @param sharedAssets the sharedAssets to set
+     */
+    public void setSharedAssets(boolean sharedAssets) {
+        this.sharedAssets = sharedAssets;
+    }
+
+    /**
+     * Returns true if the index is built once from the manifest of the generated reports instead of
+     * being regenerated after each report.
+     * 
+     * @return the deferredIndex
+     */
+    public boolean isDeferredIndex() {
+        return deferredIndex;
+    }
+
+    /**
+     * Enable or disable the deferred index. If enabled, the index is written when the JVM shuts
+     * down.
+     * 
+     * @param deferredIndex the deferredIndex to set
+     */
+    public void setDeferredIndex(boolean deferredIndex) {
+        this.deferredIndex = deferredIndex;
+    }
+
+    /**
+     * Returns true if the reports are rendered by background threads, so that the tests do not
+     * have to wait for their report to be written.
+     * 
+     * @return the asyncRender
+     */
+    public boolean isAsyncRender() {
+        return asyncRender;
+    }
+
+    /**
+     * Enable or disable the asynchronous rendering. All the pending reports are written at the
+     * latest when the JVM shuts down.
+     * 
+     * @param asyncRender the asyncRender to set
+     */
+    public void setAsyncRender(boolean asyncRender) {
+        this.asyncRender = asyncRender;
+    }
+
+    /**
+     * Get the number of threads rendering the reports in the asynchronous render mode.
+     * 
+     * @return the renderThreads
+     */
+    public int getRenderThreads() {
+        return renderThreads;
+    }
+
+    /**
+     * Set the number of threads rendering the reports in the asynchronous render mode. It is only
+     * taken into account by the first asynchronous rendering.
+     * 
+     * @param renderThreads the renderThreads to set
+     */
+    public void setRenderThreads(int renderThreads) {
+        this.renderThreads = renderThreads;
+    }
+
+    /**
+     * Get the maximum number of bytes of an uploaded file shown in the report
+     * 
+     * @return the uploadPreviewLimit
+     */
+    public long getUploadPreviewLimit() {
+        return uploadPreviewLimit;
+    }
+
+    /**
+     * Set the maximum number of bytes of an uploaded file which are read and shown in the report.
+     * The rest of the file is left out.
+     * 
+     * @param uploadPreviewLimit the uploadPreviewLimit to set
+     */
+    public void setUploadPreviewLimit(long uploadPreviewLimit) {
+        this.uploadPreviewLimit = uploadPreviewLimit;
+    }
+
+    /**
+     * Get the maximum number of characters of a json payload shown in the report
+     * 
+     * @return the payloadLimit
+     */
+    public int getPayloadLimit() {
+        return payloadLimit;
+    }
+
+    /**
+     * Set the maximum number of characters of a json payload shown in the report. The rest of the
+     * payload is left out. 0 means no limit, which is the default.
+     * 
+     * @param payloadLimit the payloadLimit to set
+     */
+    public void setPayloadLimit(int payloadLimit) {
+        this.payloadLimit = payloadLimit;
+    }
+
+    /**
+     * Get the maximum number of elements of a json array shown in the report
+     * 
+     * @return the payloadArrayLimit
+     */
+    public int getPayloadArrayLimit() {
+        return payloadArrayLimit;
+    }
+
+    /**
+     * Set the maximum number of elements of a json array shown in the report. The other elements
+     * are replaced by their number. 0 means no limit, which is the default.
+     * 
+     * @param payloadArrayLimit the payloadArrayLimit to set
+     */
+    public void setPayloadArrayLimit(int payloadArrayLimit) {
+        this.payloadArrayLimit = payloadArrayLimit;
+    }
+
+    /**
+     * Get the maximum nesting depth of a json payload shown in the report
+     * 
+     * @return the payloadDepthLimit
+     */
+    public int getPayloadDepthLimit() {
+        return payloadDepthLimit;
+    }
+
+    /**
+     * Set the maximum nesting depth of a json payload shown in the report. Deeper arrays and objects
+     * are left out. 0 means no limit.
+     * 
+     * @param payloadDepthLimit the payloadDepthLimit to set
+     */
+    public void setPayloadDepthLimit(int payloadDepthLimit) {
+        this.payloadDepthLimit = payloadDepthLimit;
+    }
+
+    /**
+     * Get the maximum number of open http connections shared by all the tests
+     * 
+     * @return the maxConnections
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Set the maximum number of open http connections shared by all the tests. The connections are
+     * kept alive and reused by the next requests.
+     * 
+     * @param maxConnections the maxConnections to set
+     */
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * Get the maximum number of open http connections to the same host
+     * 
+     * @return the maxConnectionsPerRoute
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * Set the maximum number of open http connections to the same host
+     * 
+     * @param maxConnectionsPerRoute the maxConnectionsPerRoute to set
+     */
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    /**
+     * Get the time in milliseconds after which an unused http connection is closed
+     * 
+     * @return the connectionIdleTimeout
+     */
+    public long getConnectionIdleTimeout() {
+        return connectionIdleTimeout;
+    }
+
+    /**
+     * Set the time in milliseconds after which an unused http connection is closed. 0 means that the
+     * connections are never closed because they are unused.
+     * 
+     * @param connectionIdleTimeout the connectionIdleTimeout to set
+     */
+    public void setConnectionIdleTimeout(long connectionIdleTimeout) {
+        this.connectionIdleTimeout = connectionIdleTimeout;
+    }
+
+    /**
+     * Get the executor running the asynchronous requests, or null if the default one is used
+     * 
+     * @return the requestExecutor
+     */
+    public ExecutorService getRequestExecutor() {
+        return requestExecutor;
+    }
+
+    /**
+     * Set the executor running the asynchronous requests. If it is null, the requests run in
+     * virtual threads if the runtime supports them, or else in a pool of threads.
+     * 
+     * @param requestExecutor the requestExecutor to set
+     */
+    public void setRequestExecutor(ExecutorService requestExecutor) {
+        this.requestExecutor = requestExecutor;
+    }
+
+    /**
+     * Get the maximum number of requests of a batch running at the same time
+     * 
+     * @return the batchConcurrency
+     */
+    public int getBatchConcurrency() {
+        return batchConcurrency;
+    }
+
+    /**
+     * Set the maximum number of requests of a batch running at the same time. The other requests of
+     * the batch wait until one of them is complete.
+     * 
+     * @param batchConcurrency the batchConcurrency to set
+     */
+    public void setBatchConcurrency(int batchConcurrency) {
+        this.batchConcurrency = batchConcurrency;
+    }
+
+    /**
+     * Returns true if the requests of the tests are recorded, so that they can be replayed by
+     * {@link LogicDocTest#replayRequests(String, com.devbliss.doctest.load.LoadProfile)}.
+     * 
+     * @return the recordRequests
+     */
+    public boolean isRecordRequests() {
+        return recordRequests;
+    }
+
+    /**
+     * Enable or disable the recording of the requests. The recorded requests are kept until the
+     * end of the test class, so it should only be enabled by the tests replaying their requests.
+     * 
+     * @param recordRequests the recordRequests to set
+     */
+    public void setRecordRequests(boolean recordRequests) {
+        this.recordRequests = recordRequests;
+    }
+
+    /**
+     * Get the value of the request metrics option
+     * 
+     * @return the showRequestMetrics
+     */
+    public boolean isShowRequestMetrics() {
+        return showRequestMetrics;
+    }
+
+    /**
+     * Set the request metrics option. If it is enabled, each response shows the timings and sizes
+     * of its request, and each report starts with their percentiles by endpoint.
+     * 
+     * @param showRequestMetrics the showRequestMetrics to set
+     */
+    public void setShowRequestMetrics(boolean showRequestMetrics) {
+        this.showRequestMetrics = showRequestMetrics;
+    }
 }
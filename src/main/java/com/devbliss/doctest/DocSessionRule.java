@@ -0,0 +1,58 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.devbliss.doctest;
+
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import com.devbliss.doctest.machine.DocTestMachine;
+
+/**
+ * Class rule binding the report of a test class to the thread running the class.
+ * <p>
+ * The report is begun before the class runs, so that its test methods write into the same report
+ * even if they run in parallel threads, and released once the class has run, after the report has
+ * been rendered by {@link DocTest#finishDocTest()}.
+ * </p>
+ * <p>
+ * {@link DocTest} declares this rule, so that its subclasses can run their methods in parallel
+ * (e.g. with surefire's <code>parallel=methods</code>) without declaring anything.
+ * </p>
+ */
+public class DocSessionRule implements TestRule {
+
+    private final DocTestMachine docTestMachine;
+
+    public DocSessionRule(DocTestMachine docTestMachine) {
+        this.docTestMachine = docTestMachine;
+    }
+
+    public Statement apply(final Statement base, final Description description) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                // the name and the introduction are set by the first test
+                docTestMachine.beginDoctest(description.getTestClass(), null, null);
+                try {
+                    base.evaluate();
+                } finally {
+                    docTestMachine.prepareDocTest();
+                }
+            }
+        };
+    }
+}
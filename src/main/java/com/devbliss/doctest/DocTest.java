@@ -14,8 +14,21 @@
 
 package com.devbliss.doctest;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.http.pool.PoolStats;
+import org.junit.AfterClass;
+import org.junit.ClassRule;
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import com.devbliss.doctest.httpfactory.ConnectionPool;
 import com.devbliss.doctest.inject.GuiceModule;
+import com.devbliss.doctest.load.LoadRunner;
 import com.devbliss.doctest.machine.DocTestMachine;
+import com.devbliss.doctest.renderer.ReportRenderer;
 import com.devbliss.doctest.utils.FileHelper;
 import com.devbliss.doctest.utils.JSONHelper;
 import com.google.inject.Guice;
@@ -27,20 +40,136 @@ public abstract class DocTest extends LogicDocTest {
 
     private static Injector injector;
     private static JSONHelper JSON_HELPER;
-    private static ApiTest API_TEST;
+    // the ApiTests of the test classes which are running, by the thread which created them
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<Thread, ApiTest>> API_TESTS =
+            new ConcurrentHashMap<Class<?>, ConcurrentMap<Thread, ApiTest>>();
+    private static final ThreadLocal<ApiTest> THREAD_API = new ThreadLocal<ApiTest>();
+    private static volatile ApiTest API_OVERRIDE;
     private static DocTestMachine DOC_TEST_MACHINE;
     private static FileHelper FILE_HELPER;
+    private static LoadRunner LOAD_RUNNER;
 
     static {
         injector = Guice.createInjector(new GuiceModule());
         DOC_TEST_MACHINE = injector.getInstance(DocTestMachine.class);
-        API_TEST = injector.getInstance(ApiTest.class);
         JSON_HELPER = injector.getInstance(JSONHelper.class);
         FILE_HELPER = injector.getInstance(FileHelper.class);
+        LOAD_RUNNER = injector.getInstance(LoadRunner.class);
+    }
+
+    /**
+     * Binds the report of the test class to the thread running the class, so that the test methods
+     * can run in parallel.
+     */
+    @ClassRule
+    public static final DocSessionRule DOC_SESSION = new DocSessionRule(DOC_TEST_MACHINE);
+
+    /**
+     * Drops the {@link ApiTest}s of the test class once it has run, whatever the threads which
+     * created them, so that the next test class starts with new ones.
+     */
+    @ClassRule
+    public static final TestRule API_SESSION = new TestRule() {
+        public Statement apply(final Statement base, final Description description) {
+            return new Statement() {
+                @Override
+                public void evaluate() throws Throwable {
+                    try {
+                        base.evaluate();
+                    } finally {
+                        releaseApi(description.getTestClass());
+                    }
+                }
+            };
+        }
+    };
+
+    private final ApiTest api;
+
+    @AfterClass
+    public static void finishDocTest() throws Exception {
+        finishDocTest(DOC_TEST_MACHINE);
+    }
+
+    /**
+     * Returns the statistics of the pool of http connections shared by all the tests, e.g. to write
+     * them into a report.
+     *
+     * @return
+     */
+    protected static PoolStats getConnectionPoolStats() {
+        return injector.getInstance(ConnectionPool.class).getStats();
+    }
+
+    static ReportRenderer getReportRenderer() {
+        return injector.getInstance(ReportRenderer.class);
     }
 
+    /**
+     * Sets the {@link ApiTest} used by all the tests created afterwards, whatever their thread. The
+     * tests then share its http client and cookies, so they should not run in parallel. The
+     * {@link ApiTest} is kept until it is reset, so a test class setting it, e.g. a mock, should set
+     * null once it has run, e.g. in an <code>@AfterClass</code> method.
+     * <p>
+     * Without it, each test class gets its own {@link ApiTest} in each thread, see
+     * {@link #setThreadApi(ApiTest)}. Setting null goes back to these {@link ApiTest}s.
+     * </p>
+     *
+     * @param api
+     */
     protected static void setApi(ApiTest api) {
-        API_TEST = api;
+        API_OVERRIDE = api;
+    }
+
+    /**
+     * Sets the {@link ApiTest} used by the tests created afterwards in the current thread, until
+     * the test class has run.
+     * <p>
+     * By default, each test class gets its own {@link ApiTest} in each thread creating its tests,
+     * with its own http client and cookies, so that the test classes and their methods can run in
+     * parallel. The {@link ApiTest}s of a test class are dropped once it has run, so that the next
+     * test class starts with new ones, even in the same threads. The {@link ApiTest} set by
+     * {@link #setApi(ApiTest)} takes precedence.
+     * </p>
+     *
+     * @param api
+     */
+    protected static void setThreadApi(ApiTest api) {
+        THREAD_API.set(api);
+    }
+
+    static void releaseApi(Class<?> testClass) {
+        THREAD_API.remove();
+        if (testClass != null) {
+            API_TESTS.remove(testClass);
+        }
+    }
+
+    private static ApiTest getApi(Class<?> testClass) {
+        ApiTest api = API_OVERRIDE;
+        if (api == null) {
+            api = THREAD_API.get();
+        }
+        if (api != null) {
+            return api;
+        }
+
+        ConcurrentMap<Thread, ApiTest> classApis = API_TESTS.get(testClass);
+        if (classApis == null) {
+            ConcurrentMap<Thread, ApiTest> newClassApis =
+                    new ConcurrentHashMap<Thread, ApiTest>();
+            classApis = API_TESTS.putIfAbsent(testClass, newClassApis);
+            if (classApis == null) {
+                classApis = newClassApis;
+            }
+        }
+        // only the current thread adds its own ApiTest
+        api = classApis.get(Thread.currentThread());
+        if (api == null) {
+            api = injector.getInstance(ApiTest.class);
+            classApis.put(Thread.currentThread(), api);
+        }
+        return api;
     }
 
     public DocTest() {
@@ -48,7 +177,14 @@ public abstract class DocTest extends LogicDocTest {
     }
 
     public DocTest(Configuration configuration) {
-        super(DOC_TEST_MACHINE, API_TEST, JSON_HELPER, FILE_HELPER, configuration);
+        // the ApiTest depends on the test class, which is only known once the super class is built
+        super(DOC_TEST_MACHINE, null, JSON_HELPER, FILE_HELPER, LOAD_RUNNER, configuration);
+        api = getApi(getClass());
         FILE_HELPER.setConfiguration(configuration);
     }
+
+    @Override
+    protected ApiTest getApiTest() {
+        return api;
+    }
 }
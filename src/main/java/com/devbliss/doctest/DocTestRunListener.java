@@ -0,0 +1,71 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.devbliss.doctest;
+
+import org.junit.runner.Description;
+import org.junit.runner.Result;
+import org.junit.runner.notification.RunListener;
+
+import com.devbliss.doctest.renderer.FinishableReportRenderer;
+import com.devbliss.doctest.renderer.ReportRenderer;
+
+/**
+ * {@link RunListener} rendering all the reports of the test run at once, when the run is finished.
+ * <p>
+ * The reports of the test classes are only collected while the tests run, then rendered all
+ * together with one thread per processor, and the index is written once, at the end. The tests do
+ * not wait for their report to be rendered anymore.
+ * </p>
+ * <p>
+ * The listener can be registered in the configuration of the maven surefire plugin:
+ * 
+ * <pre>
+ * &lt;properties&gt;
+ *     &lt;property&gt;
+ *         &lt;name&gt;listener&lt;/name&gt;
+ *         &lt;value&gt;com.devbliss.doctest.DocTestRunListener&lt;/value&gt;
+ *     &lt;/property&gt;
+ * &lt;/properties&gt;
+ * </pre>
+ * 
+ * </p>
+ */
+public class DocTestRunListener extends RunListener {
+
+    private final ReportRenderer reportRenderer;
+
+    public DocTestRunListener() {
+        this(DocTest.getReportRenderer());
+    }
+
+    public DocTestRunListener(ReportRenderer reportRenderer) {
+        this.reportRenderer = reportRenderer;
+    }
+
+    @Override
+    public void testRunStarted(Description description) {
+        if (reportRenderer instanceof FinishableReportRenderer) {
+            ((FinishableReportRenderer) reportRenderer).deferUntilFinish();
+        }
+    }
+
+    @Override
+    public void testRunFinished(Result result) throws Exception {
+        if (reportRenderer instanceof FinishableReportRenderer) {
+            ((FinishableReportRenderer) reportRenderer).finish();
+        }
+    }
+}
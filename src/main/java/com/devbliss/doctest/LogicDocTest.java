@@ -24,22 +24,38 @@ import java.io.File;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 import javax.activation.MimetypesFileTypeMap;
 
 import org.apache.http.entity.mime.content.FileBody;
 import org.junit.AfterClass;
 import org.junit.Before;
+import org.junit.ComparisonFailure;
 
+import com.devbliss.doctest.httpfactory.JsonPayload;
 import com.devbliss.doctest.httpfactory.PostUploadWithoutRedirectImpl;
+import com.devbliss.doctest.httpfactory.RequestMetrics;
+import com.devbliss.doctest.items.RequestUploadDocItem;
+import com.devbliss.doctest.load.LoadProfile;
+import com.devbliss.doctest.load.LoadReport;
+import com.devbliss.doctest.load.LoadRunner;
 import com.devbliss.doctest.machine.DocTestMachine;
 import com.devbliss.doctest.utils.FileHelper;
 import com.devbliss.doctest.utils.JSONHelper;
+import com.devbliss.doctest.utils.JsonComparison;
+import com.devbliss.doctest.utils.RequestExecutors;
 
 import de.devbliss.apitester.ApiRequest;
 import de.devbliss.apitester.ApiResponse;
 import de.devbliss.apitester.ApiTest;
+import de.devbliss.apitester.ApiTest.HTTP_REQUEST;
 import de.devbliss.apitester.Context;
 import de.devbliss.apitester.Cookie;
 
@@ -51,12 +67,15 @@ public abstract class LogicDocTest {
      */
     public static final List<String> SHOW_ALL_ELEMENTS = Arrays.asList("*");
 
-    protected static DocTestMachine docTestMachine;
+    protected final DocTestMachine docTestMachine;
 
     private final ApiTest apiTest;
     private final JSONHelper jsonHelper;
     private final FileHelper fileHelper;
+    private final LoadRunner loadRunner;
     private final Configuration configuration;
+    private final List<BatchRequest> recordedRequests =
+            Collections.synchronizedList(new ArrayList<BatchRequest>());
 
     /**
      * defines the cookies that we want to render for the documentation
@@ -91,13 +110,19 @@ public abstract class LogicDocTest {
     @Before
     public void ensureDocTestClassSet() {
         fileHelper.validateFileName(getFileName());
-        docTestMachine.beginDoctest(getFileName(), getIntroduction());
+        docTestMachine.beginDoctest(getClass(), getFileName(), getIntroduction());
     }
 
-    @AfterClass
-    public static void finishDocTest() throws Exception {
-        LogicDocTest.docTestMachine.endDocTest();
-        LogicDocTest.docTestMachine.prepareDocTest();
+    /**
+     * Renders the report of the test class running in the current thread. It has to be called once
+     * the test class has run, e.g. by an <code>@AfterClass</code> method, as {@link DocTest} does.
+     * 
+     * @param docTestMachine the machine of the test class
+     * @throws Exception
+     */
+    protected static void finishDocTest(DocTestMachine docTestMachine) throws Exception {
+        docTestMachine.endDocTest();
+        docTestMachine.prepareDocTest();
     }
 
     public LogicDocTest(
@@ -106,10 +131,25 @@ public abstract class LogicDocTest {
             JSONHelper jsonHelper,
             FileHelper fileHelper,
             Configuration configuration) {
-        LogicDocTest.docTestMachine = docTest;
+        this(docTest, apiTest, jsonHelper, fileHelper, null, configuration);
+    }
+
+    /**
+     * @param loadRunner replays the requests of {@link #replayRequests(String, LoadProfile)}, may be
+     *            null if the test does not replay its requests
+     */
+    public LogicDocTest(
+            DocTestMachine docTest,
+            ApiTest apiTest,
+            JSONHelper jsonHelper,
+            FileHelper fileHelper,
+            LoadRunner loadRunner,
+            Configuration configuration) {
+        this.docTestMachine = docTest;
         this.apiTest = apiTest;
         this.jsonHelper = jsonHelper;
         this.fileHelper = fileHelper;
+        this.loadRunner = loadRunner;
         this.configuration = configuration;
 
         this.fileHelper.setConfiguration(configuration);
@@ -159,8 +199,19 @@ public abstract class LogicDocTest {
         docTestMachine.sayNextSectionTitle(sectionName);
     }
 
-    private void sayRequest(ApiRequest apiRequest, Object obj) throws Exception {
-        docTestMachine.sayRequest(apiRequest, jsonHelper.toJson(obj), headersToShow, cookiesToShow);
+    private void sayRequest(ApiRequest apiRequest, JsonPayload payload) throws Exception {
+        docTestMachine.sayRequest(apiRequest, toReportJson(payload), headersToShow, cookiesToShow);
+    }
+
+    private String toReportJson(JsonPayload payload) {
+        return payload != null ? payload.getJson() : jsonHelper.toJson(null);
+    }
+
+    /**
+     * Serializes the given object once, for both the request and the report.
+     */
+    private JsonPayload toPayload(Object obj) {
+        return obj != null ? new JsonPayload(jsonHelper.toJson(obj)) : null;
     }
 
     private void sayRequest(ApiRequest apiRequest) throws Exception {
@@ -190,26 +241,18 @@ public abstract class LogicDocTest {
     }
 
     protected ApiResponse makeGetRequestSilent(URI uri) throws Exception {
-        return doGetRequest(uri).apiResponse;
-    }
-
-    private Context doGetRequest(URI uri) throws Exception {
-        return apiTest.get(uri);
+        return doRequest(BatchRequest.get(uri)).apiResponse;
     }
 
     protected ApiResponse makeGetRequest(URI uri) throws Exception {
-        Context context = doGetRequest(uri);
+        MeasuredContext context = doRequest(BatchRequest.get(uri));
         sayRequest(context.apiRequest);
-        docTestMachine.sayResponse(context.apiResponse, headersToShow);
+        docTestMachine.sayResponse(context.apiResponse, context.metrics, headersToShow);
         return context.apiResponse;
     }
 
     protected ApiResponse makePostRequestSilent(URI uri, Object obj) throws Exception {
-        return doPostRequest(uri, obj).apiResponse;
-    }
-
-    private Context doPostRequest(URI uri, Object obj) throws Exception {
-        return apiTest.post(uri, obj);
+        return doRequest(BatchRequest.post(uri, toPayload(obj))).apiResponse;
     }
 
     protected ApiResponse makePostRequest(URI uri) throws Exception {
@@ -217,9 +260,10 @@ public abstract class LogicDocTest {
     }
 
     protected ApiResponse makePostRequest(URI uri, Object obj) throws Exception {
-        Context context = doPostRequest(uri, obj);
-        sayRequest(context.apiRequest, obj);
-        docTestMachine.sayResponse(context.apiResponse, headersToShow);
+        JsonPayload payload = toPayload(obj);
+        MeasuredContext context = doRequest(BatchRequest.post(uri, payload));
+        sayRequest(context.apiRequest, payload);
+        docTestMachine.sayResponse(context.apiResponse, context.metrics, headersToShow);
         return context.apiResponse;
     }
 
@@ -228,25 +272,32 @@ public abstract class LogicDocTest {
         FileBody fileBodyToUpload = new FileBody(fileToUpload);
         String mimeType = new MimetypesFileTypeMap().getContentType(fileToUpload);
 
-        Context context =
-                apiTest.post(uri, null, new PostUploadWithoutRedirectImpl(paramName,
-                        fileBodyToUpload));
+        // uploads are measured, but not replayed
+        RequestMetrics metrics = RequestMetrics.start(BatchRequest.post(uri).getEndpoint());
+        Context context;
+        try {
+            context =
+                    getApiTest().post(uri, null, new PostUploadWithoutRedirectImpl(paramName,
+                            fileBodyToUpload));
+        } finally {
+            metrics.stop();
+        }
 
+        String fileBody = null;
+        if (RequestUploadDocItem.isFileBodyShown(mimeType)) {
+            fileBody =
+                    fileHelper.readFilePreview(fileToUpload, configuration.getUploadPreviewLimit());
+        }
         docTestMachine.sayUploadRequest(context.apiRequest, fileBodyToUpload.getFilename(),
-                fileHelper.readFile(fileToUpload), fileToUpload.length(), mimeType, headersToShow,
-                cookiesToShow);
+                fileBody, fileToUpload.length(), mimeType, headersToShow, cookiesToShow);
 
-        docTestMachine.sayResponse(context.apiResponse, headersToShow);
+        docTestMachine.sayResponse(context.apiResponse, metrics, headersToShow);
 
         return context.apiResponse;
     }
 
     protected ApiResponse makePutRequestSilent(URI uri, Object obj) throws Exception {
-        return doPutRequest(uri, obj).apiResponse;
-    }
-
-    private Context doPutRequest(URI uri, Object obj) throws Exception {
-        return apiTest.put(uri, obj);
+        return doRequest(BatchRequest.put(uri, toPayload(obj))).apiResponse;
     }
 
     protected ApiResponse makePutRequest(URI uri) throws Exception {
@@ -254,26 +305,19 @@ public abstract class LogicDocTest {
     }
 
     protected ApiResponse makePutRequest(URI uri, Object obj) throws Exception {
-        Context context = doPutRequest(uri, obj);
-        sayRequest(context.apiRequest, obj);
-        docTestMachine.sayResponse(context.apiResponse, headersToShow);
+        JsonPayload payload = toPayload(obj);
+        MeasuredContext context = doRequest(BatchRequest.put(uri, payload));
+        sayRequest(context.apiRequest, payload);
+        docTestMachine.sayResponse(context.apiResponse, context.metrics, headersToShow);
         return context.apiResponse;
     }
 
     protected ApiResponse makeDeleteRequestSilent(URI uri) throws Exception {
-        return doDeleteRequest(uri).apiResponse;
-    }
-
-    private Context doDeleteRequest(URI uri) throws Exception {
-        return apiTest.delete(uri);
+        return doRequest(BatchRequest.delete(uri)).apiResponse;
     }
 
     protected ApiResponse makeDeleteRequestSilent(URI uri, Object obj) throws Exception {
-        return doDeleteRequest(uri, obj).apiResponse;
-    }
-
-    private Context doDeleteRequest(URI uri, Object obj) throws Exception {
-        return apiTest.delete(uri, obj);
+        return doRequest(BatchRequest.delete(uri, toPayload(obj))).apiResponse;
     }
 
     protected ApiResponse makeDeleteRequest(URI uri) throws Exception {
@@ -281,12 +325,276 @@ public abstract class LogicDocTest {
     }
 
     protected ApiResponse makeDeleteRequest(URI uri, Object obj) throws Exception {
-        Context context = doDeleteRequest(uri, obj);
-        sayRequest(context.apiRequest, obj);
-        docTestMachine.sayResponse(context.apiResponse, headersToShow);
+        JsonPayload payload = toPayload(obj);
+        MeasuredContext context = doRequest(BatchRequest.delete(uri, payload));
+        sayRequest(context.apiRequest, payload);
+        docTestMachine.sayResponse(context.apiResponse, context.metrics, headersToShow);
         return context.apiResponse;
     }
 
+    /**
+     * Makes the GET request in the background and returns at once. The request and the response are
+     * written into the report at the place of this call, whenever the request completes.
+     * <p>
+     * The requests run on the executor set in the {@link Configuration}, and share the http client
+     * and the cookies of the test.
+     * </p>
+     * 
+     * @param uri
+     * @return the response of the request
+     */
+    protected Future<ApiResponse> makeGetRequestAsync(URI uri) {
+        return submitRequest(BatchRequest.get(uri), null);
+    }
+
+    protected Future<ApiResponse> makePostRequestAsync(URI uri) {
+        return makePostRequestAsync(uri, null);
+    }
+
+    /**
+     * Makes the POST request in the background, see {@link #makeGetRequestAsync(URI)}.
+     * 
+     * @param uri
+     * @param obj
+     * @return the response of the request
+     */
+    protected Future<ApiResponse> makePostRequestAsync(URI uri, Object obj) {
+        JsonPayload payload = toPayload(obj);
+        return submitRequest(BatchRequest.post(uri, payload), toReportJson(payload));
+    }
+
+    protected Future<ApiResponse> makePutRequestAsync(URI uri) {
+        return makePutRequestAsync(uri, null);
+    }
+
+    /**
+     * Makes the PUT request in the background, see {@link #makeGetRequestAsync(URI)}.
+     * 
+     * @param uri
+     * @param obj
+     * @return the response of the request
+     */
+    protected Future<ApiResponse> makePutRequestAsync(URI uri, Object obj) {
+        JsonPayload payload = toPayload(obj);
+        return submitRequest(BatchRequest.put(uri, payload), toReportJson(payload));
+    }
+
+    protected Future<ApiResponse> makeDeleteRequestAsync(URI uri) {
+        return makeDeleteRequestAsync(uri, null);
+    }
+
+    /**
+     * Makes the DELETE request in the background, see {@link #makeGetRequestAsync(URI)}.
+     * 
+     * @param uri
+     * @param obj
+     * @return the response of the request
+     */
+    protected Future<ApiResponse> makeDeleteRequestAsync(URI uri, Object obj) {
+        JsonPayload payload = toPayload(obj);
+        return submitRequest(BatchRequest.delete(uri, payload), toReportJson(payload));
+    }
+
+    /**
+     * Records the request and reserves its place in the report, then runs it on the request
+     * executor.
+     */
+    private Future<ApiResponse> submitRequest(final BatchRequest request, final String reportJson) {
+        recordRequest(request);
+        final DocTestMachine requestMachine = docTestMachine.sayLater();
+        final Configuration requestConfiguration = configuration;
+        Callable<ApiResponse> task = new Callable<ApiResponse>() {
+            public ApiResponse call() throws Exception {
+                Configuration previousConfiguration =
+                        fileHelper.setRenderConfiguration(requestConfiguration);
+                try {
+                    MeasuredContext context = sendRequest(request);
+                    requestMachine.sayRequest(context.apiRequest, reportJson, headersToShow,
+                            cookiesToShow);
+                    requestMachine.sayResponse(context.apiResponse, context.metrics,
+                            headersToShow);
+                    return context.apiResponse;
+                } finally {
+                    requestMachine.endDocTest();
+                    fileHelper.setRenderConfiguration(previousConfiguration);
+                }
+            }
+        };
+
+        try {
+            return getRequestExecutor().submit(task);
+        } catch (RuntimeException e) {
+            // e.g. rejected by the executor: the report must not wait for the request
+            try {
+                requestMachine.endDocTest();
+            } catch (Exception endFailure) {
+                // the rejection is the failure to report
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Makes the given requests in parallel and waits until all of them are complete. At most
+     * {@link Configuration#getBatchConcurrency()} requests run at the same time, on the executor
+     * set in the {@link Configuration}.
+     * <p>
+     * The batch is written into the report as one group, with the requests in the order of the
+     * list. If some of them fail, the other ones are documented anyway and the first failure is
+     * thrown.
+     * </p>
+     * 
+     * @param requests
+     * @return the responses, in the order of the requests
+     * @throws Exception
+     */
+    protected List<ApiResponse> makeRequests(List<BatchRequest> requests) throws Exception {
+        final Semaphore permits = new Semaphore(Math.max(1, configuration.getBatchConcurrency()));
+        ExecutorService executor = getRequestExecutor();
+        List<String> reportJsons = new ArrayList<String>();
+        List<Future<MeasuredContext>> contexts = new ArrayList<Future<MeasuredContext>>();
+        for (BatchRequest batchRequest : requests) {
+            JsonPayload payload = toPayload(batchRequest.getPayload());
+            reportJsons.add(batchRequest.getMethod() == HTTP_REQUEST.GET ? null
+                    : toReportJson(payload));
+            final BatchRequest request = batchRequest.withPayload(payload);
+            recordRequest(request);
+            permits.acquire();
+            try {
+                contexts.add(executor.submit(new Callable<MeasuredContext>() {
+                    public MeasuredContext call() throws Exception {
+                        try {
+                            return sendRequest(request);
+                        } finally {
+                            permits.release();
+                        }
+                    }
+                }));
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        DocTestMachine group = docTestMachine.sayGroup();
+        List<ApiResponse> responses = new ArrayList<ApiResponse>();
+        Exception failure = null;
+        for (int i = 0; i < contexts.size(); i++) {
+            try {
+                MeasuredContext context = contexts.get(i).get();
+                group.sayRequest(context.apiRequest, reportJsons.get(i), headersToShow,
+                        cookiesToShow);
+                group.sayResponse(context.apiResponse, context.metrics, headersToShow);
+                responses.add(context.apiResponse);
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+                responses.add(null);
+            }
+        }
+        group.endDocTest();
+
+        if (failure != null) {
+            throw failure;
+        }
+        return responses;
+    }
+
+    protected List<ApiResponse> makeRequests(BatchRequest... requests) throws Exception {
+        return makeRequests(Arrays.asList(requests));
+    }
+
+    private MeasuredContext doRequest(BatchRequest request) throws Exception {
+        recordRequest(request);
+        return sendRequest(request);
+    }
+
+    private MeasuredContext sendRequest(BatchRequest request) throws Exception {
+        RequestMetrics metrics = RequestMetrics.start(request.getEndpoint());
+        try {
+            return new MeasuredContext(send(request), metrics);
+        } finally {
+            metrics.stop();
+        }
+    }
+
+    private Context send(BatchRequest request) throws Exception {
+        URI uri = request.getUri();
+        switch (request.getMethod()) {
+            case GET:
+                return getApiTest().get(uri);
+            case POST:
+                return getApiTest().post(uri, request.getPayload());
+            case PUT:
+                return getApiTest().put(uri, request.getPayload());
+            case DELETE:
+                return getApiTest().delete(uri, request.getPayload());
+            default:
+                throw new IllegalArgumentException("Unsupported request: " + request);
+        }
+    }
+
+    /**
+     * Records the request for {@link #replayRequests(String, LoadProfile)}, if the requests are
+     * recorded. It is called by the thread making the request, before the request is sent, so that
+     * the requests are recorded in the order of the test.
+     */
+    private void recordRequest(BatchRequest request) {
+        if (configuration.isRecordRequests()) {
+            recordedRequests.add(request);
+        }
+    }
+
+    /**
+     * Replays the requests made so far by the test from several workers at the same time, as
+     * described by the given {@link LoadProfile}. The latencies, the throughput and the errors of
+     * each endpoint are rendered into the report with the given name.
+     * <p>
+     * The requests are only recorded if {@link Configuration#setRecordRequests(boolean)} is
+     * enabled. All the requests of the test are replayed, documented or not, except the uploads.
+     * They are sent again as they have been made, with the same uris and payloads, even if the test
+     * built them from previous responses. They are replayed in the order of the calls that made
+     * them, the requests of a batch in the order of the list, even if the asynchronous requests
+     * complete in another order.
+     * </p>
+     * 
+     * @param name name of the load report
+     * @param profile
+     * @return the result of the run
+     * @throws Exception
+     * @throws IllegalStateException if the requests are not recorded, or if the test has no
+     *             {@link LoadRunner}
+     */
+    protected LoadReport replayRequests(String name, LoadProfile profile) throws Exception {
+        if (loadRunner == null) {
+            throw new IllegalStateException("The test has no LoadRunner to replay its requests.");
+        }
+        if (!configuration.isRecordRequests()) {
+            throw new IllegalStateException(
+                    "The requests are not recorded, see Configuration#setRecordRequests");
+        }
+        List<BatchRequest> requests;
+        synchronized (recordedRequests) {
+            requests = new ArrayList<BatchRequest>(recordedRequests);
+        }
+        return loadRunner.run(name, requests, profile);
+    }
+
+    /**
+     * Returns the {@link ApiTest} making the requests of this test.
+     * 
+     * @return the apiTest
+     */
+    protected ApiTest getApiTest() {
+        return apiTest;
+    }
+
+    private ExecutorService getRequestExecutor() {
+        ExecutorService executor = configuration.getRequestExecutor();
+        return executor != null ? executor : RequestExecutors.getDefault();
+    }
+
     /**
      * 
      * @param expected
@@ -329,27 +637,34 @@ public abstract class LogicDocTest {
      * First converts both objects to Json and then asserts that they are equal, except on the
      * fields mentioned in exceptions.
      * The resulting doc will sport the expected Json String after the given message.
+     * <p>
+     * The Json trees are compared field by field, whatever the order of the fields. If they
+     * differ, the assertion message gives the path of the first difference, e.g.
+     * <code>$.items[2].name: expected "a" but was "b"</code>, which is also written into the doc,
+     * and the thrown {@link ComparisonFailure} holds the json of both objects.
+     * </p>
      * 
      * @param expected POJO
      * @param result POJO
      * @param message Additional message to be concatenated to the expected Json
-     * @param exceptions a List of fieldnames that will be omitted in comparison
+     * @param exceptions a List of fieldnames that will be omitted in comparison. A fieldname
+     *            containing dots, e.g. <code>owner.id</code>, is the path of a field from the root
+     *            object.
      */
     protected void assertJsonEqualsAndSay(Object expected, Object result, String message,
             List<String> exceptions) {
-        String expectedJson;
-        String resultingJson;
-
-        if (exceptions != null && exceptions.size() > 0) {
-            expectedJson = jsonHelper.toJsonAndSkipCertainFields(expected, exceptions, true);
-            resultingJson = jsonHelper.toJsonAndSkipCertainFields(result, exceptions, true);
-        } else {
-            expectedJson = jsonHelper.toJson(expected, true);
-            resultingJson = jsonHelper.toJson(result, true);
+        JsonComparison comparison = jsonHelper.compareJson(expected, result, exceptions);
+        if (!comparison.isEqual()) {
+            String difference = comparison.getDifference();
+            String failure =
+                    message == null || message.isEmpty() ? difference : message + ": "
+                            + difference;
+            // the report shows where the comparison failed
+            docTestMachine.sayVerify(failure);
+            throw new ComparisonFailure(failure, comparison.getExpectedJson(), comparison
+                    .getActualJson());
         }
-
-        assertEquals(expectedJson, resultingJson);
-        docTestMachine.sayVerify(message + expectedJson);
+        docTestMachine.sayVerify(message + comparison.getExpectedJson());
     }
 
     protected void assertTrueAndSay(Boolean condition, String message) {
@@ -381,7 +696,7 @@ public abstract class LogicDocTest {
      * @param expectedValue The expected value
      */
     protected void assertCookieEqualsAndSay(String name, String expectedValue) {
-        String value = apiTest.getTestState().getCookieValue(name);
+        String value = getApiTest().getTestState().getCookieValue(name);
         assertEquals(expectedValue, value);
         docTestMachine.sayVerify(name + ": " + value);
     }
@@ -394,7 +709,7 @@ public abstract class LogicDocTest {
      * @param name The name of the cookie
      */
     protected void assertCookiePresentAndSay(String name) {
-        String value = apiTest.getTestState().getCookieValue(name);
+        String value = getApiTest().getTestState().getCookieValue(name);
         assertNotNull(value);
         docTestMachine.sayVerify(name + ": " + value);
     }
@@ -407,7 +722,7 @@ public abstract class LogicDocTest {
      * @param name The name of the cookie
      */
     protected void assertCookieNotPresentAndSay(String name) {
-        String value = apiTest.getTestState().getCookieValue(name);
+        String value = getApiTest().getTestState().getCookieValue(name);
         assertNull(value);
         docTestMachine.sayVerify(name + ": " + value);
     }
@@ -421,7 +736,7 @@ public abstract class LogicDocTest {
      * @param expected The cookie to check
      */
     protected void assertCookieMatchesAndSay(Cookie expected) {
-        Cookie cookie = apiTest.getTestState().getCookie(expected.name);
+        Cookie cookie = getApiTest().getTestState().getCookie(expected.name);
         assertNotNull(cookie);
         assertEquals(expected.value, cookie.value);
         if (expected.expires == null) {
@@ -443,7 +758,7 @@ public abstract class LogicDocTest {
      * @return The cookies value, or null if no cookie with that name was found
      */
     protected String getCookieValue(String name) {
-        return apiTest.getTestState().getCookieValue(name);
+        return getApiTest().getTestState().getCookieValue(name);
     }
 
     /**
@@ -453,7 +768,7 @@ public abstract class LogicDocTest {
      * @param value The value of the cookie
      */
     protected void addCookie(String name, String value) {
-        apiTest.getTestState().addCookie(
+        getApiTest().getTestState().addCookie(
                 new Cookie(name, value, null, "/", "localhost", false, false));
     }
 
@@ -461,7 +776,7 @@ public abstract class LogicDocTest {
      * Clear all cookies from the current state
      */
     protected void clearCookies() {
-        apiTest.getTestState().clearCookies();
+        getApiTest().getTestState().clearCookies();
     }
 
     /**
@@ -472,4 +787,17 @@ public abstract class LogicDocTest {
     protected Configuration getConfiguration() {
         return configuration;
     }
+
+    /**
+     * Request and response of a request, with its {@link RequestMetrics}.
+     */
+    private static class MeasuredContext extends Context {
+
+        private final RequestMetrics metrics;
+
+        MeasuredContext(Context context, RequestMetrics metrics) {
+            super(context.apiResponse, context.apiRequest);
+            this.metrics = metrics;
+        }
+    }
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.devbliss.doctest.httpfactory;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.CookieStore;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ClientConnectionRequest;
+import org.apache.http.conn.ManagedClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+import com.devbliss.doctest.Configuration;
+import com.devbliss.doctest.utils.FileHelper;
+import com.google.inject.Inject;
+
+import de.devbliss.apitester.TestState;
+
+/**
+ * Pool of keep-alive http connections shared by the http clients of all the tests.
+ * <p>
+ * Each {@link TestState} created by the pool has its own http client and cookies, but the
+ * connections are leased from the pool and reused by the next requests to the same host, instead
+ * of being opened for each client.
+ * </p>
+ * <p>
+ * The size of the pool and the idle timeout of the connections are read from the
+ * {@link Configuration} of the test each time a connection is leased. The connections which have
+ * been unused for longer than the idle timeout are closed at the same time.
+ * </p>
+ */
+public class ConnectionPool {
+
+    private static final MetricsInterceptor METRICS_INTERCEPTOR = new MetricsInterceptor();
+
+    private final FileHelper fileHelper;
+    private final PoolingClientConnectionManager connectionManager;
+    private final ClientConnectionManager sharedConnectionManager;
+    // the applied limits, read without lock each time a connection is leased
+    private volatile int maxTotal;
+    private volatile int maxPerRoute;
+    private volatile long lastEviction;
+
+    @Inject
+    public ConnectionPool(FileHelper fileHelper) {
+        this.fileHelper = fileHelper;
+        connectionManager = new PoolingClientConnectionManager();
+        sharedConnectionManager = new SharedConnectionManager();
+        configure(new Configuration());
+    }
+
+    /**
+     * Creates a new {@link TestState} whose http client uses the connections of the pool and fills
+     * in the {@link RequestMetrics} of the measured requests.
+     * 
+     * @return
+     */
+    public TestState createTestState() {
+        CookieStore cookieStore = new BasicCookieStore();
+        DefaultHttpClient client = new DefaultHttpClient(sharedConnectionManager);
+        client.setCookieStore(cookieStore);
+        client.addRequestInterceptor(METRICS_INTERCEPTOR);
+        client.addResponseInterceptor(METRICS_INTERCEPTOR);
+        return new TestState(client, cookieStore);
+    }
+
+    /**
+     * Returns the number of leased, available and pending connections of the pool.
+     * 
+     * @return
+     */
+    public PoolStats getStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * Applies the limits of the given configuration and closes the connections which have been
+     * unused for too long.
+     * <p>
+     * The limits are compared without lock, so that the threads leasing connections only wait for
+     * each other if the limits change or if the idle connections have to be closed.
+     * </p>
+     */
+    void configure(Configuration configuration) {
+        long idleTimeout = configuration.getConnectionIdleTimeout();
+        if (configuration.getMaxConnections() == maxTotal
+                && configuration.getMaxConnectionsPerRoute() == maxPerRoute
+                && !isEvictionDue(idleTimeout, System.currentTimeMillis())) {
+            return;
+        }
+
+        synchronized (this) {
+            if (configuration.getMaxConnections() != maxTotal) {
+                connectionManager.setMaxTotal(configuration.getMaxConnections());
+                maxTotal = configuration.getMaxConnections();
+            }
+            if (configuration.getMaxConnectionsPerRoute() != maxPerRoute) {
+                connectionManager.setDefaultMaxPerRoute(configuration.getMaxConnectionsPerRoute());
+                maxPerRoute = configuration.getMaxConnectionsPerRoute();
+            }
+
+            long now = System.currentTimeMillis();
+            if (isEvictionDue(idleTimeout, now)) {
+                connectionManager.closeExpiredConnections();
+                connectionManager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+                lastEviction = now;
+            }
+        }
+    }
+
+    private boolean isEvictionDue(long idleTimeout, long now) {
+        return idleTimeout > 0 && now - lastEviction >= idleTimeout / 2;
+    }
+
+    private void configure() {
+        Configuration configuration = fileHelper.getConfiguration();
+        if (configuration != null) {
+            configure(configuration);
+        }
+    }
+
+    /**
+     * Connection manager given to the http clients. The pool is shared by all the clients, so a
+     * client can not shut it down.
+     */
+    private class SharedConnectionManager implements ClientConnectionManager {
+
+        public SchemeRegistry getSchemeRegistry() {
+            return connectionManager.getSchemeRegistry();
+        }
+
+        public ClientConnectionRequest requestConnection(HttpRoute route, Object state) {
+            configure();
+            return connectionManager.requestConnection(route, state);
+        }
+
+        public void releaseConnection(ManagedClientConnection connection, long validDuration,
+                TimeUnit timeUnit) {
+            connectionManager.releaseConnection(connection, validDuration, timeUnit);
+        }
+
+        public void closeIdleConnections(long idletime, TimeUnit timeUnit) {
+            connectionManager.closeIdleConnections(idletime, timeUnit);
+        }
+
+        public void closeExpiredConnections() {
+            connectionManager.closeExpiredConnections();
+        }
+
+        public void shutdown() {
+            // the connections are closed when the JVM exits
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.devbliss.doctest.httpfactory;
+
+import static com.devbliss.doctest.httpfactory.HttpConstants.HANDLE_REDIRECTS;
+
+import org.apache.http.params.AbstractHttpParams;
+import org.apache.http.params.HttpParams;
+
+/**
+ * Parameters shared by all the requests created by the factories: the redirects are not handled.
+ * <p>
+ * The parameters can not be changed, so that one instance can be used by all the requests of all
+ * the threads.
+ * </p>
+ */
+final class DefaultRequestParams extends AbstractHttpParams {
+
+    static final HttpParams INSTANCE = new DefaultRequestParams();
+
+    private DefaultRequestParams() {}
+
+    public Object getParameter(String name) {
+        if (HANDLE_REDIRECTS.equals(name)) {
+            return Boolean.FALSE;
+        }
+        return null;
+    }
+
+    public HttpParams setParameter(String name, Object value) {
+        throw new UnsupportedOperationException("The default parameters of the requests can not be changed.");
+    }
+
+    public boolean removeParameter(String name) {
+        throw new UnsupportedOperationException("The default parameters of the requests can not be changed.");
+    }
+
+    @Deprecated
+    public HttpParams copy() {
+        return this;
+    }
+}
@@ -14,17 +14,10 @@
 
 package com.devbliss.doctest.httpfactory;
 
-import static com.devbliss.doctest.httpfactory.HttpConstants.ENCODING;
-import static com.devbliss.doctest.httpfactory.HttpConstants.HANDLE_REDIRECTS;
-
 import java.io.IOException;
 import java.net.URI;
 
 import org.apache.http.client.methods.HttpDelete;
-import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.params.BasicHttpParams;
-import org.apache.http.params.HttpParams;
 
 import com.google.gson.Gson;
 import com.google.inject.Inject;
@@ -49,15 +42,10 @@ public class DeleteWithoutRedirectImpl implements DeleteFactory {
 
     public HttpDeleteWithBody createDeleteRequest(URI uri, Object payload) throws IOException {
         HttpDeleteWithBody httpDelete = new HttpDeleteWithBody(uri);
-        HttpParams params = new BasicHttpParams();
-        params.setParameter(HANDLE_REDIRECTS, false);
-        httpDelete.setParams(params);
+        httpDelete.setParams(DefaultRequestParams.INSTANCE);
 
         if (payload != null) {
-            String json = gson.toJson(payload);
-            StringEntity entity = new StringEntity(json, ENCODING);
-            entity.setContentType(ContentType.APPLICATION_JSON.getMimeType());
-            httpDelete.setEntity(entity);
+            httpDelete.setEntity(JsonPayload.toEntity(payload, gson));
         }
 
         return httpDelete;
@@ -65,9 +53,7 @@ public class DeleteWithoutRedirectImpl implements DeleteFactory {
 
     public HttpDelete createDeleteRequest(URI uri) throws IOException {
         HttpDelete httpDelete = new HttpDelete(uri);
-        HttpParams params = new BasicHttpParams();
-        params.setParameter(HANDLE_REDIRECTS, false);
-        httpDelete.setParams(params);
+        httpDelete.setParams(DefaultRequestParams.INSTANCE);
         return httpDelete;
     }
 
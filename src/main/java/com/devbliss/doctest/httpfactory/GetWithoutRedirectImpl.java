@@ -14,14 +14,10 @@
 
 package com.devbliss.doctest.httpfactory;
 
-import static com.devbliss.doctest.httpfactory.HttpConstants.HANDLE_REDIRECTS;
-
 import java.io.IOException;
 import java.net.URI;
 
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.params.BasicHttpParams;
-import org.apache.http.params.HttpParams;
 
 import de.devbliss.apitester.factory.GetFactory;
 
@@ -35,9 +31,7 @@ public class GetWithoutRedirectImpl implements GetFactory {
 
     public HttpGet createGetRequest(URI uri) throws IOException {
         HttpGet httpGet = new HttpGet(uri);
-        HttpParams params = new BasicHttpParams();
-        params.setParameter(HANDLE_REDIRECTS, false);
-        httpGet.setParams(params);
+        httpGet.setParams(DefaultRequestParams.INSTANCE);
         return httpGet;
     }
 
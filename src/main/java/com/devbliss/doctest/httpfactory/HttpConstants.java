@@ -22,6 +22,5 @@ package com.devbliss.doctest.httpfactory;
  */
 class HttpConstants {
 
-    static final String ENCODING = "UTF-8";
     static final String HANDLE_REDIRECTS = "http.protocol.handle-redirects";
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.devbliss.doctest.httpfactory;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+
+import com.google.common.base.Charsets;
+import com.google.gson.Gson;
+
+/**
+ * Payload of a request, serialized once to json and encoded once to UTF-8.
+ * <p>
+ * The same bytes are sent by the request and the same json is shown in the report, so that the
+ * payload does not have to be serialized again for each of them.
+ * </p>
+ */
+public final class JsonPayload {
+
+    private final String json;
+    private final byte[] bytes;
+
+    public JsonPayload(String json) {
+        this.json = json;
+        bytes = json.getBytes(Charsets.UTF_8);
+    }
+
+    public String getJson() {
+        return json;
+    }
+
+    /**
+     * Returns a new entity sending the bytes of the payload, without copying them.
+     * 
+     * @return
+     */
+    public HttpEntity toEntity() {
+        ByteArrayEntity entity = new ByteArrayEntity(bytes);
+        entity.setContentType(ContentType.APPLICATION_JSON.getMimeType());
+        return entity;
+    }
+
+    /**
+     * Returns the entity of the given payload: the payload itself if it has already been
+     * serialized, or else its json.
+     */
+    static HttpEntity toEntity(Object payload, Gson gson) {
+        if (payload instanceof JsonPayload) {
+            return ((JsonPayload) payload).toEntity();
+        }
+        return new JsonPayload(gson.toJson(payload)).toEntity();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof JsonPayload && json.equals(((JsonPayload) obj).json);
+    }
+
+    @Override
+    public int hashCode() {
+        return json.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return json;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.devbliss.doctest.httpfactory;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.http.HttpConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.protocol.ExecutionContext;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Fills in the {@link RequestMetrics} of the request made by the current thread, if it is
+ * measured.
+ * <p>
+ * The response interceptor runs as soon as the response headers have been received. It counts the
+ * bytes of the response body while the body is read.
+ * </p>
+ */
+class MetricsInterceptor implements HttpRequestInterceptor, HttpResponseInterceptor {
+
+    public void process(HttpRequest request, HttpContext context) {
+        RequestMetrics metrics = RequestMetrics.current();
+        if (metrics == null || !(request instanceof HttpEntityEnclosingRequest)) {
+            return;
+        }
+        HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+        if (entity != null && entity.getContentLength() >= 0) {
+            metrics.setRequestBytes(entity.getContentLength());
+        }
+    }
+
+    public void process(HttpResponse response, HttpContext context) {
+        RequestMetrics metrics = RequestMetrics.current();
+        if (metrics == null) {
+            return;
+        }
+        metrics.receivedFirstByte();
+        Object connection = context.getAttribute(ExecutionContext.HTTP_CONNECTION);
+        if (connection instanceof HttpConnection) {
+            // the first request of a connection is its only one so far
+            metrics.setConnectionReused(((HttpConnection) connection).getMetrics()
+                    .getRequestCount() > 1);
+        }
+        if (response.getEntity() != null) {
+            response.setEntity(new CountingEntity(response.getEntity(), metrics));
+        }
+    }
+
+    private static class CountingEntity extends HttpEntityWrapper {
+
+        private final RequestMetrics metrics;
+
+        CountingEntity(HttpEntity entity, RequestMetrics metrics) {
+            super(entity);
+            this.metrics = metrics;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return new CountingInputStream(super.getContent(), metrics);
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+
+        private final RequestMetrics metrics;
+
+        CountingInputStream(InputStream in, RequestMetrics metrics) {
+            super(in);
+            this.metrics = metrics;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+            if (result >= 0) {
+                metrics.addResponseBytes(1);
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int result = super.read(buffer, offset, length);
+            if (result > 0) {
+                metrics.addResponseBytes(result);
+            }
+            return result;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            metrics.addResponseBytes(skipped);
+            return skipped;
+        }
+    }
+}
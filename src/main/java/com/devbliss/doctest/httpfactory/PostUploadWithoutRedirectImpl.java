@@ -21,8 +21,6 @@ import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.mime.HttpMultipartMode;
 import org.apache.http.entity.mime.MultipartEntity;
 import org.apache.http.entity.mime.content.FileBody;
-import org.apache.http.params.BasicHttpParams;
-import org.apache.http.params.HttpParams;
 
 import de.devbliss.apitester.factory.PostFactory;
 
@@ -44,9 +42,7 @@ public class PostUploadWithoutRedirectImpl implements PostFactory {
 
     public HttpPost createPostRequest(URI uri, Object payload) throws IOException {
         HttpPost httpPost = new HttpPost(uri);
-        HttpParams params = new BasicHttpParams();
-        params.setParameter(HttpConstants.HANDLE_REDIRECTS, false);
-        httpPost.setParams(params);
+        httpPost.setParams(DefaultRequestParams.INSTANCE);
 
         MultipartEntity entity = new MultipartEntity(HttpMultipartMode.BROWSER_COMPATIBLE);
         entity.addPart(paramName, fileBodyToUpload);
@@ -14,17 +14,10 @@
 
 package com.devbliss.doctest.httpfactory;
 
-import static com.devbliss.doctest.httpfactory.HttpConstants.ENCODING;
-import static com.devbliss.doctest.httpfactory.HttpConstants.HANDLE_REDIRECTS;
-
 import java.io.IOException;
 import java.net.URI;
 
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.params.BasicHttpParams;
-import org.apache.http.params.HttpParams;
 
 import com.google.gson.Gson;
 import com.google.inject.Inject;
@@ -48,15 +41,10 @@ public class PostWithoutRedirectImpl implements PostFactory {
 
     public HttpPost createPostRequest(URI uri, Object payload) throws IOException {
         HttpPost httpPost = new HttpPost(uri);
-        HttpParams params = new BasicHttpParams();
-        params.setParameter(HANDLE_REDIRECTS, false);
-        httpPost.setParams(params);
+        httpPost.setParams(DefaultRequestParams.INSTANCE);
 
         if (payload != null) {
-            String json = gson.toJson(payload);
-            StringEntity entity = new StringEntity(json, ENCODING);
-            entity.setContentType(ContentType.APPLICATION_JSON.getMimeType());
-            httpPost.setEntity(entity);
+            httpPost.setEntity(JsonPayload.toEntity(payload, gson));
         }
 
         return httpPost;
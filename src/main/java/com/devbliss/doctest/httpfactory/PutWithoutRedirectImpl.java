@@ -14,17 +14,10 @@
 
 package com.devbliss.doctest.httpfactory;
 
-import static com.devbliss.doctest.httpfactory.HttpConstants.ENCODING;
-import static com.devbliss.doctest.httpfactory.HttpConstants.HANDLE_REDIRECTS;
-
 import java.io.IOException;
 import java.net.URI;
 
 import org.apache.http.client.methods.HttpPut;
-import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.params.BasicHttpParams;
-import org.apache.http.params.HttpParams;
 
 import com.google.gson.Gson;
 import com.google.inject.Inject;
@@ -48,15 +41,10 @@ public class PutWithoutRedirectImpl implements PutFactory {
 
     public HttpPut createPutRequest(URI uri, Object payload) throws IOException {
         HttpPut httpPut = new HttpPut(uri);
-        HttpParams params = new BasicHttpParams();
-        params.setParameter(HANDLE_REDIRECTS, false);
-        httpPut.setParams(params);
+        httpPut.setParams(DefaultRequestParams.INSTANCE);
 
         if (payload != null) {
-            String json = gson.toJson(payload);
-            StringEntity entity = new StringEntity(json, ENCODING);
-            entity.setContentType(ContentType.APPLICATION_JSON.getMimeType());
-            httpPut.setEntity(entity);
+            httpPut.setEntity(JsonPayload.toEntity(payload, gson));
         }
 
         return httpPut;
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.devbliss.doctest.httpfactory;
+
+/**
+ * Timings and sizes of one request: the time until the response headers were received, the total
+ * time including the response body, the sizes of the request and the response bodies and whether
+ * the http connection was reused.
+ * <p>
+ * The measured request is bound to the thread making it, between {@link #start(String)} and
+ * {@link #stop()}, so that the interceptors of the http client can fill it in. A request made
+ * without these interceptors, e.g. by another http client, only gets its total time.
+ * </p>
+ */
+public class RequestMetrics {
+
+    private static final ThreadLocal<RequestMetrics> CURRENT = new ThreadLocal<RequestMetrics>();
+
+    private final String endpoint;
+    private final long startNanos;
+    private long totalNanos = -1;
+    private long firstByteNanos = -1;
+    private long requestBytes;
+    private long responseBytes;
+    private Boolean connectionReused;
+
+    private RequestMetrics(String endpoint, long startNanos) {
+        this.endpoint = endpoint;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * Creates the metrics of a request measured elsewhere.
+     * 
+     * @param endpoint http method and path of the request, e.g. <code>"GET /users"</code>
+     * @param totalNanos
+     * @param firstByteNanos time until the response headers were received, or -1 if it is unknown
+     * @param requestBytes
+     * @param responseBytes
+     * @param connectionReused null if it is unknown
+     */
+    public RequestMetrics(
+            String endpoint,
+            long totalNanos,
+            long firstByteNanos,
+            long requestBytes,
+            long responseBytes,
+            Boolean connectionReused) {
+        this(endpoint, 0);
+        this.totalNanos = totalNanos;
+        this.firstByteNanos = firstByteNanos;
+        this.requestBytes = requestBytes;
+        this.responseBytes = responseBytes;
+        this.connectionReused = connectionReused;
+    }
+
+    /**
+     * Starts to measure the request which the current thread is about to make.
+     * 
+     * @param endpoint http method and path of the request, e.g. <code>"GET /users"</code>
+     * @return
+     */
+    public static RequestMetrics start(String endpoint) {
+        RequestMetrics metrics = new RequestMetrics(endpoint, System.nanoTime());
+        CURRENT.set(metrics);
+        return metrics;
+    }
+
+    /**
+     * Returns the metrics of the request made by the current thread, or null if it is not measured.
+     */
+    static RequestMetrics current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Stops the measure, once the whole response has been read.
+     */
+    public void stop() {
+        totalNanos = System.nanoTime() - startNanos;
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    void receivedFirstByte() {
+        if (firstByteNanos < 0) {
+            firstByteNanos = System.nanoTime() - startNanos;
+        }
+    }
+
+    void setRequestBytes(long requestBytes) {
+        this.requestBytes = requestBytes;
+    }
+
+    void addResponseBytes(long bytes) {
+        responseBytes += bytes;
+    }
+
+    void setConnectionReused(boolean connectionReused) {
+        this.connectionReused = connectionReused;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Returns the total time of the request in milliseconds.
+     * 
+     * @return
+     */
+    public double getTotalTime() {
+        return toMillis(totalNanos);
+    }
+
+    /**
+     * Returns the time in milliseconds until the response headers were received, or null if it is
+     * unknown.
+     * 
+     * @return
+     */
+    public Double getTimeToFirstByte() {
+        return firstByteNanos < 0 ? null : toMillis(firstByteNanos);
+    }
+
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    /**
+     * Returns true if the request was sent on a connection kept alive by a previous request, or
+     * null if it is unknown.
+     * 
+     * @return
+     */
+    public Boolean getConnectionReused() {
+        return connectionReused;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1000000.0;
+    }
+}
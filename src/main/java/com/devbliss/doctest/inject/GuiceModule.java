@@ -14,13 +14,17 @@
 
 package com.devbliss.doctest.inject;
 
+import com.devbliss.doctest.httpfactory.ConnectionPool;
 import com.devbliss.doctest.httpfactory.DeleteWithoutRedirectImpl;
 import com.devbliss.doctest.httpfactory.GetWithoutRedirectImpl;
 import com.devbliss.doctest.httpfactory.PostWithoutRedirectImpl;
 import com.devbliss.doctest.httpfactory.PutWithoutRedirectImpl;
+import com.devbliss.doctest.load.LoadRunner;
 import com.devbliss.doctest.machine.DocTestMachine;
 import com.devbliss.doctest.machine.DocTestMachineImpl;
+import com.devbliss.doctest.renderer.AsyncReportRenderer;
 import com.devbliss.doctest.renderer.ReportRenderer;
+import com.devbliss.doctest.renderer.html.HtmlAssets;
 import com.devbliss.doctest.renderer.html.HtmlItems;
 import com.devbliss.doctest.renderer.html.HtmlRenderer;
 import com.devbliss.doctest.templating.ConfigurationWrapper;
@@ -31,6 +35,7 @@ import com.google.inject.Singleton;
 import com.google.inject.name.Names;
 
 import de.devbliss.apitester.ApiTest;
+import de.devbliss.apitester.TestState;
 import de.devbliss.apitester.factory.DeleteFactory;
 import de.devbliss.apitester.factory.GetFactory;
 import de.devbliss.apitester.factory.PostFactory;
@@ -44,11 +49,20 @@ public class GuiceModule extends AbstractModule {
     @Override
     protected void configure() {
         bind(DocTestMachine.class).to(DocTestMachineImpl.class).in(Singleton.class);
-        bind(ApiTest.class).in(Singleton.class);
+        // not a singleton: each thread running tests gets its own http client and cookies
+        bind(ApiTest.class);
+        bind(TestState.class).annotatedWith(Names.named(ApiTest.TEST_STATE)).toProvider(
+                TestStateProvider.class);
+        bind(ConnectionPool.class).in(Singleton.class);
+        bind(LoadRunner.class).in(Singleton.class);
         bind(JSONHelper.class).in(Singleton.class);
         bind(HtmlItems.class).in(Singleton.class);
+        bind(HtmlAssets.class).in(Singleton.class);
         bind(FileHelper.class).in(Singleton.class);
-        bind(ReportRenderer.class).to(HtmlRenderer.class).in(Singleton.class);
+        bind(HtmlRenderer.class).in(Singleton.class);
+        bind(ReportRenderer.class).annotatedWith(Names.named(AsyncReportRenderer.DELEGATE)).to(
+                HtmlRenderer.class);
+        bind(ReportRenderer.class).to(AsyncReportRenderer.class).in(Singleton.class);
         bind(Configuration.class).to(ConfigurationWrapper.class).in(Singleton.class);
         bind(ObjectWrapper.class).to(DefaultObjectWrapper.class);
 
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.devbliss.doctest.inject;
+
+import com.devbliss.doctest.httpfactory.ConnectionPool;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+import de.devbliss.apitester.ApiTest;
+import de.devbliss.apitester.TestState;
+
+/**
+ * Provides the {@link TestState} of each {@link ApiTest}: its own cookies, and an http client
+ * using the connections of the {@link ConnectionPool}.
+ */
+public class TestStateProvider implements Provider<TestState> {
+
+    private final ConnectionPool connectionPool;
+
+    @Inject
+    public TestStateProvider(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    public TestState get() {
+        return connectionPool.createTestState();
+    }
+}
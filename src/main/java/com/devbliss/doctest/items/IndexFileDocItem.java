@@ -19,6 +19,7 @@ import java.util.Date;
 public class IndexFileDocItem implements DocItem {
 
     private String css;
+    private String cssFile;
     private String name;
     private String items;
     private final String date;
@@ -38,6 +39,19 @@ public class IndexFileDocItem implements DocItem {
         return css;
     }
 
+    /**
+     * Link to the shared css file, used instead of {@link #getCss()} if set.
+     * 
+     * @return
+     */
+    public String getCssFile() {
+        return cssFile;
+    }
+
+    public void setCssFile(String cssFile) {
+        this.cssFile = cssFile;
+    }
+
     public String getName() {
         return name;
     }
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.devbliss.doctest.items;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.devbliss.doctest.load.LoadReport;
+
+/**
+ * Result of a load run, with the latency histogram of each endpoint.
+ */
+public class LoadReportDocItem implements DocItem {
+
+    private static final AtomicInteger NB_ITEMS = new AtomicInteger();
+
+    private final String id;
+    private final LoadReport report;
+
+    public LoadReportDocItem(LoadReport report) {
+        this.id = "load" + NB_ITEMS.getAndIncrement();
+        this.report = report;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public LoadReport getReport() {
+        return report;
+    }
+
+    public String getItemName() {
+        return "loadReport";
+    }
+}
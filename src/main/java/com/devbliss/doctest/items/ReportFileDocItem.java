@@ -14,21 +14,22 @@
 
 package com.devbliss.doctest.items;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.Date;
+import java.util.List;
 
-import com.devbliss.doctest.renderer.html.HtmlItems;
-import com.google.common.io.CharStreams;
+import com.devbliss.doctest.renderer.html.ClasspathAssets;
+
+import freemarker.template.TemplateDirectiveModel;
 
 public class ReportFileDocItem implements DocItem {
 
     private String css;
-    private String jsCode;
+    private String cssFile;
+    private List<String> jsFiles;
     private String name;
     private final String introduction;
     private String items;
+    private TemplateDirectiveModel streamedItems;
     private final String date;
 
     public ReportFileDocItem(String name, String introduction, String items) {
@@ -41,16 +42,6 @@ public class ReportFileDocItem implements DocItem {
         this.items = items;
         this.introduction = introduction;
         this.date = new Date().toString();
-        try {
-            StringBuffer stringBuffer = new StringBuffer();
-            InputStream jsStream = HtmlItems.class.getResourceAsStream("/script.js");
-            stringBuffer.append(CharStreams.toString(new InputStreamReader(jsStream)));
-            jsStream = HtmlItems.class.getResourceAsStream("/jquery-1.8.0.min.js");
-            stringBuffer.append(CharStreams.toString(new InputStreamReader(jsStream)));
-            this.jsCode = stringBuffer.toString();
-        } catch (IOException e) {
-            this.jsCode = "no js";
-        }
     }
 
     public String getCss() {
@@ -58,7 +49,33 @@ public class ReportFileDocItem implements DocItem {
     }
 
     public String getJsCode() {
-        return jsCode;
+        return ClasspathAssets.getJsCode();
+    }
+
+    /**
+     * Link to the shared css file, used instead of {@link #getCss()} if set.
+     * 
+     * @return
+     */
+    public String getCssFile() {
+        return cssFile;
+    }
+
+    public void setCssFile(String cssFile) {
+        this.cssFile = cssFile;
+    }
+
+    /**
+     * Links to the shared javascript files, used instead of {@link #getJsCode()} if set.
+     * 
+     * @return
+     */
+    public List<String> getJsFiles() {
+        return jsFiles;
+    }
+
+    public void setJsFiles(List<String> jsFiles) {
+        this.jsFiles = jsFiles;
     }
 
     public String getName() {
@@ -85,6 +102,20 @@ public class ReportFileDocItem implements DocItem {
         this.items = items;
     }
 
+    /**
+     * Directive writing the items straight into the output of the report, used instead of
+     * {@link #getItems()} if the report is streamed.
+     * 
+     * @return
+     */
+    public TemplateDirectiveModel getStreamedItems() {
+        return streamedItems;
+    }
+
+    public void setStreamedItems(TemplateDirectiveModel streamedItems) {
+        this.streamedItems = streamedItems;
+    }
+
     public String getDate() {
         return this.date;
     }
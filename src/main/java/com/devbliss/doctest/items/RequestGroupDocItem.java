@@ -0,0 +1,67 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.devbliss.doctest.items;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Group of requests made together, e.g. by a batch. The report shows one summary row per request,
+ * whose request and response items can be expanded.
+ */
+public class RequestGroupDocItem implements DocItem {
+
+    private static final AtomicInteger NB_ITEMS = new AtomicInteger();
+
+    private final String id;
+    private final List<DocItem> items;
+
+    public RequestGroupDocItem() {
+        this.id = "group" + NB_ITEMS.getAndIncrement();
+        this.items = Collections.synchronizedList(new ArrayList<DocItem>());
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns the items of the group, i.e. the request and the response of each request.
+     * 
+     * @return
+     */
+    public List<DocItem> getItems() {
+        return items;
+    }
+
+    public int getRequestCount() {
+        int requests = 0;
+        synchronized (items) {
+            for (DocItem item : items) {
+                if (item instanceof RequestDocItem) {
+                    requests++;
+                }
+            }
+        }
+        return requests;
+    }
+
+    public String getItemName() {
+        return "requestGroup";
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.devbliss.doctest.items;
+
+import java.util.List;
+
+/**
+ * Summary of the total times of the requests of a report, by endpoint.
+ */
+public class RequestSummaryDocItem implements DocItem {
+
+    private final List<Entry> entries;
+
+    /**
+     * Total times of the requests of one endpoint, in milliseconds.
+     */
+    public static class Entry {
+
+        private final String endpoint;
+        private final int requests;
+        private final double p50;
+        private final double p95;
+        private final double max;
+
+        public Entry(String endpoint, int requests, double p50, double p95, double max) {
+            this.endpoint = endpoint;
+            this.requests = requests;
+            this.p50 = p50;
+            this.p95 = p95;
+            this.max = max;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public int getRequests() {
+            return requests;
+        }
+
+        public double getP50() {
+            return p50;
+        }
+
+        public double getP95() {
+            return p95;
+        }
+
+        public double getMax() {
+            return max;
+        }
+    }
+
+    public RequestSummaryDocItem(List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public String getItemName() {
+        return "requestSummary";
+    }
+}
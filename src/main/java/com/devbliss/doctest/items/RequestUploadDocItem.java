@@ -15,12 +15,13 @@
 package com.devbliss.doctest.items;
 
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang.StringEscapeUtils;
 
 public class RequestUploadDocItem extends RequestDocItem {
 
-    private static int NB_ITEMS = 0;
+    private static final AtomicInteger NB_ITEMS = new AtomicInteger();
 
     private final String id;
     private final String fileName;
@@ -43,7 +44,7 @@ public class RequestUploadDocItem extends RequestDocItem {
         this.isAnUploadRequest = true;
         this.fileSize = fileSize;
         this.mimeType = mimeType;
-        this.id = "request" + NB_ITEMS++;
+        this.id = "request" + NB_ITEMS.getAndIncrement();
     }
 
     public String getFileName() {
@@ -71,6 +72,17 @@ public class RequestUploadDocItem extends RequestDocItem {
     }
 
     public boolean getShowFileBody() {
+        return isFileBodyShown(mimeType);
+    }
+
+    /**
+     * Returns true if the body of an uploaded file with the given mime type is shown in the
+     * report. The body of the other files does not need to be read.
+     * 
+     * @param mimeType
+     * @return
+     */
+    public static boolean isFileBodyShown(String mimeType) {
         return "text/plain".equals(mimeType);
     }
 }
@@ -16,6 +16,8 @@ package com.devbliss.doctest.items;
 
 import java.util.Map;
 
+import com.devbliss.doctest.httpfactory.RequestMetrics;
+
 import de.devbliss.apitester.ApiResponse;
 
 public class ResponseDocItem implements DocItem {
@@ -23,11 +25,21 @@ public class ResponseDocItem implements DocItem {
     private final int responseCode;
     private final JsonDocItem payload;
     private final Map<String, String> headers;
+    private final RequestMetrics metrics;
 
     public ResponseDocItem(ApiResponse response, String payload, Map<String, String> headers) {
+        this(response, payload, headers, null);
+    }
+
+    public ResponseDocItem(
+            ApiResponse response,
+            String payload,
+            Map<String, String> headers,
+            RequestMetrics metrics) {
         this.responseCode = response.httpStatus;
         this.payload = new JsonDocItem(payload);
         this.headers = headers;
+        this.metrics = metrics;
     }
 
     public int getResponseCode() {
@@ -45,4 +57,13 @@ public class ResponseDocItem implements DocItem {
     public Map<String, String> getHeaders() {
         return this.headers;
     }
+
+    /**
+     * Returns the timings and sizes of the request, or null if they are not shown.
+     * 
+     * @return
+     */
+    public RequestMetrics getMetrics() {
+        return metrics;
+    }
 }
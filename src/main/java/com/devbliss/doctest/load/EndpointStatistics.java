@@ -0,0 +1,121 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.devbliss.doctest.load;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latencies and errors of the replayed requests of one endpoint, i.e. of one http method and path.
+ * <p>
+ * A request is an error if it got no response at all or if its response is a server error. The
+ * latencies are only recorded for the requests which got a response.
+ * </p>
+ */
+public class EndpointStatistics {
+
+    private final String endpoint;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final AtomicLong serverErrors = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private double seconds;
+
+    public EndpointStatistics(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Records a request which got a response.
+     * 
+     * @param nanos latency of the request
+     * @param responseCode http status of the response
+     */
+    public void record(long nanos, int responseCode) {
+        histogram.record(nanos);
+        if (responseCode >= 500) {
+            serverErrors.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records a request which got no response at all.
+     */
+    public void recordFailure() {
+        failures.incrementAndGet();
+    }
+
+    /**
+     * Sets the measured time, which the throughput is computed from.
+     */
+    void setSeconds(double seconds) {
+        this.seconds = seconds;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public long getRequests() {
+        return histogram.getCount() + failures.get();
+    }
+
+    public long getErrors() {
+        return serverErrors.get() + failures.get();
+    }
+
+    /**
+     * Returns the part of the requests which are errors, in percent.
+     * 
+     * @return
+     */
+    public double getErrorRate() {
+        long requests = getRequests();
+        return requests == 0 ? 0 : 100.0 * getErrors() / requests;
+    }
+
+    /**
+     * Returns the number of requests per second.
+     * 
+     * @return
+     */
+    public double getThroughput() {
+        return seconds == 0 ? 0 : getRequests() / seconds;
+    }
+
+    public double getMean() {
+        return histogram.getMean();
+    }
+
+    public double getP50() {
+        return histogram.getPercentile(50);
+    }
+
+    public double getP95() {
+        return histogram.getPercentile(95);
+    }
+
+    public double getP99() {
+        return histogram.getPercentile(99);
+    }
+
+    public double getMax() {
+        return histogram.getMax();
+    }
+
+    public List<LatencyHistogram.Bucket> getBuckets() {
+        return histogram.getBuckets();
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.devbliss.doctest.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of the latencies of the requests of one endpoint.
+ * <p>
+ * The latencies are counted in fixed buckets, so that recording a latency neither allocates nor
+ * locks, whatever the number of requests. The report shows a coarse histogram, but the percentiles
+ * are computed from finer buckets: each power of two of microseconds is split into 32 linear
+ * sub-buckets, and the percentile is interpolated within its sub-bucket. A percentile is therefore
+ * approximated within about 3 %, and never exceeds the maximum latency, which is exact.
+ * </p>
+ */
+public class LatencyHistogram {
+
+    /** Upper bounds of the buckets in milliseconds. The last bucket has no upper bound. */
+    private static final long[] BOUNDS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000,
+            10000};
+
+    /** Number of linear sub-buckets of each power of two, in bits. */
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** Latencies are recorded in microseconds up to this bound, about 19 hours. */
+    private static final int MAX_MAGNITUDE = 36;
+    private static final long MAX_MICROS = (1L << MAX_MAGNITUDE) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BOUNDS.length + 1);
+    private final AtomicLongArray fineCounts =
+            new AtomicLongArray(getFineBucket(MAX_MICROS) + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Bucket of the histogram, as shown in the report.
+     */
+    public static class Bucket {
+
+        private final String label;
+        private final long count;
+        private final double share;
+
+        Bucket(String label, long count, double share) {
+            this.label = label;
+            this.count = count;
+            this.share = share;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the part of the requests in this bucket, in percent.
+         * 
+         * @return
+         */
+        public double getShare() {
+            return share;
+        }
+    }
+
+    public void record(long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int bucket = 0;
+        while (bucket < BOUNDS.length && millis >= BOUNDS[bucket]) {
+            bucket++;
+        }
+        counts.incrementAndGet(bucket);
+        fineCounts.incrementAndGet(getFineBucket(TimeUnit.NANOSECONDS.toMicros(nanos)));
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+            // another thread has recorded a new maximum
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the mean latency in milliseconds.
+     * 
+     * @return
+     */
+    public double getMean() {
+        long requests = count.get();
+        return requests == 0 ? 0 : toMillis(totalNanos.get()) / requests;
+    }
+
+    /**
+     * Returns the maximum latency in milliseconds.
+     * 
+     * @return
+     */
+    public double getMax() {
+        return toMillis(maxNanos.get());
+    }
+
+    /**
+     * Returns the approximate latency in milliseconds under which the given percentage of the
+     * requests completed, interpolated within the fine bucket of this percentile.
+     * 
+     * @param percent between 0 and 100
+     * @return
+     */
+    public double getPercentile(double percent) {
+        long requests = count.get();
+        if (requests == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(requests * percent / 100));
+        long seen = 0;
+        for (int bucket = 0; bucket < fineCounts.length(); bucket++) {
+            long bucketCount = fineCounts.get(bucket);
+            if (seen + bucketCount >= rank) {
+                long lower = getLowerMicros(bucket);
+                long upper = getLowerMicros(bucket + 1);
+                double micros = lower + (upper - lower) * (double) (rank - seen) / bucketCount;
+                return Math.min(micros / 1000, getMax());
+            }
+            seen += bucketCount;
+        }
+        return getMax();
+    }
+
+    /**
+     * Returns the fine bucket of the given latency: the latencies under 64 microseconds have a
+     * bucket each, then each power of two is split into {@link #SUB_BUCKETS} buckets.
+     */
+    private static int getFineBucket(long micros) {
+        long value = Math.min(Math.max(micros, 0), MAX_MICROS);
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (int) (shift * SUB_BUCKETS + (value >>> shift));
+    }
+
+    /**
+     * Returns the lowest latency in microseconds of the given fine bucket.
+     */
+    private static long getLowerMicros(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return (long) (bucket - shift * SUB_BUCKETS) << shift;
+    }
+
+    public List<Bucket> getBuckets() {
+        List<Bucket> buckets = new ArrayList<Bucket>();
+        long requests = count.get();
+        for (int bucket = 0; bucket <= BOUNDS.length; bucket++) {
+            String label =
+                    bucket < BOUNDS.length ? "< " + BOUNDS[bucket] + " ms" : ">= "
+                            + BOUNDS[BOUNDS.length - 1] + " ms";
+            long bucketCount = counts.get(bucket);
+            buckets.add(new Bucket(label, bucketCount, requests == 0 ? 0 : 100.0 * bucketCount
+                    / requests));
+        }
+        return buckets;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1000000.0;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.devbliss.doctest.load;
+
+/**
+ * Describes how the requests of a test are replayed by the {@link LoadRunner}.
+ * <p>
+ * Each worker replays the whole sequence of requests again and again, with its own http client and
+ * cookies. The first iterations of each worker warm up the client and the server, and are not
+ * measured. The measured iterations then run for the given duration or, if there is none, the
+ * given number of times.
+ * </p>
+ */
+public class LoadProfile {
+
+    private int workers = 4;
+    private int iterations = 100;
+    private long duration = 0;
+    private int warmupIterations = 10;
+
+    /**
+     * Get the number of workers replaying the requests at the same time
+     * 
+     * @return the workers
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Set the number of workers replaying the requests at the same time
+     * 
+     * @param workers the workers to set
+     */
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    /**
+     * Get the number of measured iterations of each worker
+     * 
+     * @return the iterations
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Set the number of measured iterations of each worker. It is ignored if a duration is set.
+     * 
+     * @param iterations the iterations to set
+     */
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    /**
+     * Get the time in milliseconds during which the workers are measured, or 0 if they run a fixed
+     * number of iterations
+     * 
+     * @return the duration
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Set the time in milliseconds during which the workers are measured. Each worker finishes the
+     * iteration it is running when the time is over.
+     * 
+     * @param duration the duration to set
+     */
+    public void setDuration(long duration) {
+        this.duration = duration;
+    }
+
+    /**
+     * Get the number of iterations of each worker which are not measured
+     * 
+     * @return the warmupIterations
+     */
+    public int getWarmupIterations() {
+        return warmupIterations;
+    }
+
+    /**
+     * Set the number of iterations of each worker which are not measured
+     * 
+     * @param warmupIterations the warmupIterations to set
+     */
+    public void setWarmupIterations(int warmupIterations) {
+        this.warmupIterations = warmupIterations;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.devbliss.doctest.load;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result of a load run: the latencies, the throughput and the errors of each replayed endpoint.
+ */
+public class LoadReport {
+
+    private final String name;
+    private final LoadProfile profile;
+    private final long elapsedNanos;
+    private final List<EndpointStatistics> endpoints;
+
+    public LoadReport(
+            String name,
+            LoadProfile profile,
+            long elapsedNanos,
+            List<EndpointStatistics> endpoints) {
+        this.name = name;
+        this.profile = profile;
+        this.elapsedNanos = elapsedNanos;
+        this.endpoints = Collections.unmodifiableList(endpoints);
+        for (EndpointStatistics endpoint : endpoints) {
+            endpoint.setSeconds(getSeconds());
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LoadProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Returns the measured time in milliseconds, without the warm-up.
+     * 
+     * @return
+     */
+    public long getDuration() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    private double getSeconds() {
+        return elapsedNanos / 1000000000.0;
+    }
+
+    public List<EndpointStatistics> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Returns the statistics of the given endpoint, e.g. <code>"GET /users"</code>, or null if it
+     * has not been replayed.
+     * 
+     * @param endpoint
+     * @return
+     */
+    public EndpointStatistics getEndpoint(String endpoint) {
+        for (EndpointStatistics statistics : endpoints) {
+            if (statistics.getEndpoint().equals(endpoint)) {
+                return statistics;
+            }
+        }
+        return null;
+    }
+
+    public long getRequests() {
+        long requests = 0;
+        for (EndpointStatistics endpoint : endpoints) {
+            requests += endpoint.getRequests();
+        }
+        return requests;
+    }
+
+    public long getErrors() {
+        long errors = 0;
+        for (EndpointStatistics endpoint : endpoints) {
+            errors += endpoint.getErrors();
+        }
+        return errors;
+    }
+
+    /**
+     * Returns the part of the requests which are errors, in percent.
+     * 
+     * @return
+     */
+    public double getErrorRate() {
+        long requests = getRequests();
+        return requests == 0 ? 0 : 100.0 * getErrors() / requests;
+    }
+
+    /**
+     * Returns the number of requests per second of all the workers together.
+     * 
+     * @return
+     */
+    public double getThroughput() {
+        double seconds = getSeconds();
+        return seconds == 0 ? 0 : getRequests() / seconds;
+    }
+}
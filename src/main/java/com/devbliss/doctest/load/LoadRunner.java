@@ -0,0 +1,239 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.devbliss.doctest.load;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.devbliss.doctest.BatchRequest;
+import com.devbliss.doctest.items.DocItem;
+import com.devbliss.doctest.items.LoadReportDocItem;
+import com.devbliss.doctest.renderer.ReportRenderer;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+import de.devbliss.apitester.ApiTest;
+import de.devbliss.apitester.Context;
+import de.devbliss.apitester.TestState;
+
+/**
+ * Replays a sequence of requests from several workers at the same time, measures them and renders
+ * the result into its own report.
+ * <p>
+ * Each worker gets its own {@link ApiTest}, i.e. its own http client and cookies, but all of them
+ * share the pool of http connections: the maximum number of connections of the configuration must
+ * allow as many connections as there are workers. The cookies of a worker are cleared before each
+ * iteration, so that each iteration replays the requests like the test did.
+ * </p>
+ */
+public class LoadRunner {
+
+    private final Provider<ApiTest> apiTests;
+    private final ReportRenderer reportRenderer;
+
+    @Inject
+    public LoadRunner(Provider<ApiTest> apiTests, ReportRenderer reportRenderer) {
+        this.apiTests = apiTests;
+        this.reportRenderer = reportRenderer;
+    }
+
+    /**
+     * Replays the given requests as described by the profile and renders the result into the
+     * report with the given name.
+     * 
+     * @param name name of the report
+     * @param requests the requests to replay, in order
+     * @param profile
+     * @return the result of the run
+     * @throws Exception
+     */
+    public LoadReport run(String name, List<BatchRequest> requests, LoadProfile profile)
+            throws Exception {
+        if (requests.isEmpty()) {
+            throw new IllegalArgumentException("There is no request to replay.");
+        }
+
+        // the endpoints are shown in the order of the first request of each of them
+        Map<String, EndpointStatistics> statistics =
+                new LinkedHashMap<String, EndpointStatistics>();
+        List<EndpointStatistics> requestStatistics = new ArrayList<EndpointStatistics>();
+        for (BatchRequest request : requests) {
+            String endpoint = request.getEndpoint();
+            if (!statistics.containsKey(endpoint)) {
+                statistics.put(endpoint, new EndpointStatistics(endpoint));
+            }
+            requestStatistics.add(statistics.get(endpoint));
+        }
+
+        int workers = Math.max(1, profile.getWorkers());
+        CountDownLatch warmedUp = new CountDownLatch(workers);
+        CountDownLatch started = new CountDownLatch(1);
+        List<Worker> tasks = new ArrayList<Worker>();
+        for (int i = 0; i < workers; i++) {
+            tasks.add(new Worker(requests, requestStatistics, profile, warmedUp, started));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers, new LoadThreadFactory());
+        long elapsedNanos;
+        try {
+            List<Future<Void>> results = new ArrayList<Future<Void>>();
+            for (Worker task : tasks) {
+                results.add(executor.submit(task));
+            }
+            warmedUp.await();
+            // the measurement starts before any worker is released, so that the elapsed time is
+            // never shorter than the duration of the profile
+            long start = System.nanoTime();
+            started.countDown();
+            for (Future<Void> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+            elapsedNanos = System.nanoTime() - start;
+        } finally {
+            executor.shutdownNow();
+        }
+
+        LoadReport report =
+                new LoadReport(name, profile, elapsedNanos, new ArrayList<EndpointStatistics>(
+                        statistics.values()));
+        reportRenderer.render(Arrays.<DocItem> asList(new LoadReportDocItem(report)), name, "");
+        return report;
+    }
+
+    /**
+     * Replays the whole sequence of requests again and again with its own {@link ApiTest}.
+     */
+    private class Worker implements Callable<Void> {
+
+        private final List<BatchRequest> requests;
+        private final List<EndpointStatistics> requestStatistics;
+        private final LoadProfile profile;
+        private final CountDownLatch warmedUp;
+        private final CountDownLatch started;
+
+        Worker(
+                List<BatchRequest> requests,
+                List<EndpointStatistics> requestStatistics,
+                LoadProfile profile,
+                CountDownLatch warmedUp,
+                CountDownLatch started) {
+            this.requests = requests;
+            this.requestStatistics = requestStatistics;
+            this.profile = profile;
+            this.warmedUp = warmedUp;
+            this.started = started;
+        }
+
+        public Void call() throws Exception {
+            ApiTest api = null;
+            try {
+                try {
+                    api = apiTests.get();
+                    for (int i = 0; i < profile.getWarmupIterations(); i++) {
+                        replay(api, false);
+                    }
+                } finally {
+                    warmedUp.countDown();
+                }
+                // all the workers start to be measured at the same time, once the runner has
+                // started the measurement
+                started.await();
+
+                if (profile.getDuration() > 0) {
+                    long deadline =
+                            System.nanoTime()
+                                    + TimeUnit.MILLISECONDS.toNanos(profile.getDuration());
+                    while (System.nanoTime() < deadline) {
+                        replay(api, true);
+                    }
+                } else {
+                    for (int i = 0; i < profile.getIterations(); i++) {
+                        replay(api, true);
+                    }
+                }
+            } finally {
+                if (api != null) {
+                    api.shutdown();
+                }
+            }
+            return null;
+        }
+
+        private void replay(ApiTest api, boolean measured) {
+            TestState testState = api.getTestState();
+            if (testState != null) {
+                testState.cookieStore.clear();
+            }
+            for (int i = 0; i < requests.size(); i++) {
+                long start = System.nanoTime();
+                try {
+                    Context context = send(api, requests.get(i));
+                    if (measured) {
+                        requestStatistics.get(i).record(System.nanoTime() - start,
+                                context.apiResponse.httpStatus);
+                    }
+                } catch (IOException e) {
+                    if (measured) {
+                        requestStatistics.get(i).recordFailure();
+                    }
+                }
+            }
+        }
+
+        private Context send(ApiTest api, BatchRequest request) throws IOException {
+            switch (request.getMethod()) {
+                case GET:
+                    return api.get(request.getUri());
+                case POST:
+                    return api.post(request.getUri(), request.getPayload());
+                case PUT:
+                    return api.put(request.getUri(), request.getPayload());
+                case DELETE:
+                    return api.delete(request.getUri(), request.getPayload());
+                default:
+                    throw new IllegalArgumentException("Unsupported request: " + request);
+            }
+        }
+    }
+
+    private static class LoadThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "doctest-load-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
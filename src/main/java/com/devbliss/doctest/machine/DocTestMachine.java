@@ -18,6 +18,7 @@ import java.util.List;
 
 import org.json.JSONException;
 
+import com.devbliss.doctest.httpfactory.RequestMetrics;
 import com.devbliss.doctest.items.AssertDocItem;
 import com.devbliss.doctest.items.JsonDocItem;
 import com.devbliss.doctest.items.RequestDocItem;
@@ -53,6 +54,20 @@ public interface DocTestMachine {
      */
     void beginDoctest(String fileName, String introduction);
 
+    /**
+     * Begins the report of the given test class if there is no on-going generation for it.
+     * <p>
+     * Each test class gets its own report, so that test classes running in parallel threads do not
+     * write into the same report. The report is bound to the thread calling this method, until
+     * {@link #prepareDocTest()} is called by this thread.
+     * </p>
+     * 
+     * @param testClass The tested class.
+     * @param fileName The name of the file.
+     * @param introduction
+     */
+    void beginDoctest(Class<?> testClass, String fileName, String introduction);
+
     /**
      * Ends up the generation of the report.
      * 
@@ -124,4 +139,34 @@ public interface DocTestMachine {
      * @throws Exception
      */
     void sayResponse(ApiResponse response, List<String> headersToShow) throws Exception;
+
+    /**
+     * Adds the response to the report, with the timings and sizes of its request if they are shown.
+     * 
+     * @param response
+     * @param metrics timings and sizes of the request, or null if they are unknown
+     * @param headersToShow
+     * @throws Exception
+     */
+    void sayResponse(ApiResponse response, RequestMetrics metrics, List<String> headersToShow)
+            throws Exception;
+
+    /**
+     * Reserves the place of items which are only known later, e.g. the request and the response of
+     * an asynchronous request. The items written into the returned {@link DocTestMachine}, possibly
+     * by another thread, are rendered at this place. Its {@link #endDocTest()} method must be called
+     * once all of them have been written: the report waits for it before being rendered.
+     * 
+     * @return
+     */
+    DocTestMachine sayLater();
+
+    /**
+     * Adds a group of requests, e.g. of a batch, to the report. The requests and the responses
+     * written into the returned {@link DocTestMachine} are rendered as one collapsible item, with a
+     * summary row per request.
+     * 
+     * @return
+     */
+    DocTestMachine sayGroup();
 }
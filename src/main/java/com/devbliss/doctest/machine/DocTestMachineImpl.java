@@ -15,20 +15,31 @@
 package com.devbliss.doctest.machine;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.json.JSONException;
 
+import com.devbliss.doctest.Configuration;
+import com.devbliss.doctest.httpfactory.RequestMetrics;
 import com.devbliss.doctest.items.AssertDocItem;
 import com.devbliss.doctest.items.DocItem;
 import com.devbliss.doctest.items.JsonDocItem;
 import com.devbliss.doctest.items.MultipleTextDocItem;
 import com.devbliss.doctest.items.RequestDocItem;
+import com.devbliss.doctest.items.RequestGroupDocItem;
 import com.devbliss.doctest.items.RequestUploadDocItem;
 import com.devbliss.doctest.items.ResponseDocItem;
 import com.devbliss.doctest.items.SectionDocItem;
 import com.devbliss.doctest.items.TextDocItem;
+import com.devbliss.doctest.renderer.FinishableReportRenderer;
 import com.devbliss.doctest.renderer.ReportRenderer;
+import com.devbliss.doctest.utils.FileHelper;
 import com.devbliss.doctest.utils.FilterHelper;
 import com.devbliss.doctest.utils.JSONHelper;
 import com.devbliss.doctest.utils.UriHelper;
@@ -40,10 +51,10 @@ import de.devbliss.apitester.ApiResponse;
 /**
  * Default implementation of {@link DocTestMachine}.
  * <p>
- * This class ownes a list of {@link DocItem} : {@link #listItem}. Each time a say method is called, a {@link DocItem}
- * is added to {@link #listItem}. <br/>
+ * This class ownes a list of {@link DocItem} per test class: {@link #getListItem()}. Each time a say method is called,
+ * a {@link DocItem} is added to the list of the test class running in the current thread. <br/>
  * At the end of the workflow, the method {@link #endDocTest()} is called and uses a {@link ReportRenderer} to render
- * the {@link #listItem} .
+ * this list. Test classes running in parallel threads therefore get their own report.
  * </p>
  * 
  * @author bmary
@@ -51,68 +62,276 @@ import de.devbliss.apitester.ApiResponse;
  */
 public class DocTestMachineImpl implements DocTestMachine {
 
-    // The name of the report.
-    // Usually I don't like that, but we don't have another option to generate
-    // the name under test because of the static way JUnit runs files and uses
-    // AfterClass and BeforeClass.
-    private String fileName;
+    // how long the report waits for its asynchronous requests
+    private static final long DEFERRED_ITEMS_TIMEOUT = TimeUnit.MINUTES.toNanos(10);
 
     public StringBuffer outputOfTestsBuffer = new StringBuffer();
-    private final List<DocItem> listItem;
+
+    // The sessions of the test classes which are running.
+    // JUnit calls AfterClass statically, without the test class, so the session of a test class is
+    // also bound to the thread running it.
+    private final ConcurrentMap<Class<?>, DocSession> sessions;
+    private final ThreadLocal<DocSession> currentSession;
 
     private final ReportRenderer reportRenderer;
     private final JSONHelper jsonHelper;
     private final UriHelper uriHelper;
     private final FilterHelper filterHelper;
-    private String introduction;
+    private final FileHelper fileHelper;
+    private boolean shutdownHookAdded;
 
     @Inject
     public DocTestMachineImpl(
             ReportRenderer reportRenderer,
             JSONHelper jsonHelper,
             UriHelper uriHelper,
-            FilterHelper headersHelper) {
+            FilterHelper headersHelper,
+            FileHelper fileHelper) {
         this.uriHelper = uriHelper;
-        listItem = new ArrayList<DocItem>();
+        sessions = new ConcurrentHashMap<Class<?>, DocSession>();
+        currentSession = new ThreadLocal<DocSession>();
         this.reportRenderer = reportRenderer;
         this.jsonHelper = jsonHelper;
         this.filterHelper = headersHelper;
+        this.fileHelper = fileHelper;
+    }
+
+    /**
+     * The items of one report, i.e. of one test class, with its name and introduction. The methods
+     * of the test class may run in parallel threads, hence the synchronized list.
+     */
+    private static class DocSession {
+
+        private final List<DocItem> listItem =
+                Collections.synchronizedList(new ArrayList<DocItem>());
+        private Class<?> testClass;
+        private String fileName;
+        private String introduction;
+        private boolean deferred;
+    }
+
+    /**
+     * Place of the items written later by a {@link DeferredMachine}.
+     */
+    private static class DeferredItems implements DocItem {
+
+        private final List<DocItem> listItem =
+                Collections.synchronizedList(new ArrayList<DocItem>());
+        private final CountDownLatch complete = new CountDownLatch(1);
+
+        public String getItemName() {
+            return "deferred";
+        }
+    }
+
+    /**
+     * Machine writing its items at the place reserved by {@link DocTestMachineImpl#sayLater()} or
+     * into the group created by {@link DocTestMachineImpl#sayGroup()}.
+     */
+    private class DeferredMachine extends DocTestMachineImpl {
+
+        private final List<DocItem> listItem;
+        private final CountDownLatch complete;
+
+        DeferredMachine(List<DocItem> listItem, CountDownLatch complete) {
+            super(reportRenderer, jsonHelper, uriHelper, filterHelper, fileHelper);
+            this.listItem = listItem;
+            this.complete = complete;
+        }
+
+        @Override
+        protected List<DocItem> getListItem() {
+            return listItem;
+        }
+
+        @Override
+        public void beginDoctest(Class<?> testClass, String fileName, String introduction) {}
+
+        @Override
+        public void endDocTest() {
+            if (complete != null) {
+                complete.countDown();
+            }
+        }
+
+        @Override
+        public void prepareDocTest() {}
     }
 
     @Override
     public void beginDoctest(String fileName, String introduction) {
-        if (this.fileName == null) {
-            this.fileName = fileName;
-            if (this.introduction == null) {
-                this.introduction = introduction;
+        beginDoctest(null, fileName, introduction);
+    }
+
+    @Override
+    public void beginDoctest(Class<?> testClass, String fileName, String introduction) {
+        DocSession session = currentSession.get();
+        if (session == null) {
+            session = new DocSession();
+            currentSession.set(session);
+        }
+        if (testClass != null && session.testClass != testClass) {
+            if (session.testClass != null) {
+                // the thread has moved on to another test class
+                session = new DocSession();
+            }
+            DocSession classSession = sessions.putIfAbsent(testClass, session);
+            if (classSession != null) {
+                session = classSession;
+            }
+            session.testClass = testClass;
+            currentSession.set(session);
+        }
+
+        synchronized (session) {
+            if (session.fileName == null) {
+                session.fileName = fileName;
+                if (session.introduction == null) {
+                    session.introduction = introduction;
+                }
             }
         }
     }
 
     @Override
     public void endDocTest() throws Exception {
-        reportRenderer.render(listItem, fileName, introduction);
-        fileName = null;
-        introduction = null;
+        DocSession session = getSession();
+        List<DocItem> listItem = getListItem();
+        if (session.deferred) {
+            long deadline = System.nanoTime() + DEFERRED_ITEMS_TIMEOUT;
+            listItem = expandDeferredItems(listItem, session.fileName, deadline);
+        }
+        try {
+            reportRenderer.render(listItem, session.fileName, session.introduction);
+        } finally {
+            session.fileName = null;
+            session.introduction = null;
+            if (session.testClass != null) {
+                sessions.remove(session.testClass, session);
+            }
+            addShutdownHook();
+        }
+        if (sessions.isEmpty() && reportRenderer instanceof FinishableReportRenderer) {
+            // this test class may be the last one: the reports rendered in the background must
+            // fail it now, since a failure is lost once the JVM shuts down
+            ((FinishableReportRenderer) reportRenderer).awaitReports();
+        }
+    }
+
+    /**
+     * Replaces the places reserved by {@link #sayLater()} with their items, once they are complete.
+     * 
+     * @throws TimeoutException if some places are still not complete at the given deadline, e.g.
+     *             because their request hangs
+     */
+    private List<DocItem> expandDeferredItems(List<DocItem> listItem, String fileName,
+            long deadline) throws InterruptedException, TimeoutException {
+        List<DocItem> expandedItems = new ArrayList<DocItem>();
+        for (DocItem item : new ArrayList<DocItem>(listItem)) {
+            if (item instanceof DeferredItems) {
+                DeferredItems deferredItems = (DeferredItems) item;
+                if (!deferredItems.complete.await(deadline - System.nanoTime(),
+                        TimeUnit.NANOSECONDS)) {
+                    throw new TimeoutException("The asynchronous requests of the report "
+                            + fileName + " did not complete within "
+                            + TimeUnit.NANOSECONDS.toMinutes(DEFERRED_ITEMS_TIMEOUT)
+                            + " minutes.");
+                }
+                expandedItems.addAll(expandDeferredItems(deferredItems.listItem, fileName,
+                        deadline));
+            } else {
+                expandedItems.add(item);
+            }
+        }
+        return expandedItems;
+    }
+
+    /**
+     * Returns the session of the current thread, i.e. of the test class running in this thread.
+     * 
+     * @throws IllegalStateException if no doctest has been begun in this thread, since the items
+     *             would be added to a report which is never rendered
+     */
+    private DocSession getSession() {
+        DocSession session = currentSession.get();
+        if (session == null) {
+            throw new IllegalStateException("No doctest has been begun in the thread "
+                    + Thread.currentThread().getName()
+                    + ". The items of a report have to be added by the thread of its test class.");
+        }
+        return session;
+    }
+
+    /**
+     * Finishes the {@link ReportRenderer} when the JVM exits, i.e. once all the tests have run, if
+     * the reports or the index are rendered in the background or deferred. The reports which could
+     * not be rendered have already made the tests fail; nothing can catch an exception of the hook,
+     * so a failure of the deferred index is only written into the output of the JVM.
+     */
+    private synchronized void addShutdownHook() {
+        if (shutdownHookAdded || !(reportRenderer instanceof FinishableReportRenderer)
+                || !isRenderedLater()) {
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                try {
+                    ((FinishableReportRenderer) reportRenderer).finish();
+                } catch (Exception e) {
+                    System.err.println("The doctest index could not be rendered: " + e);
+                }
+            }
+        });
+        shutdownHookAdded = true;
+    }
+
+    private boolean isRenderedLater() {
+        Configuration configuration = fileHelper.getConfiguration();
+        return configuration != null
+                && (configuration.isAsyncRender() || configuration.isDeferredIndex());
     }
 
     @Override
     public void prepareDocTest() {
+        DocSession session = currentSession.get();
+        if (session == null) {
+            return;
+        }
         getListItem().clear();
+        if (session.testClass != null) {
+            sessions.remove(session.testClass, session);
+        }
+        currentSession.remove();
     }
 
     protected List<DocItem> getListItem() {
-        return listItem;
+        return getSession().listItem;
+    }
+
+    @Override
+    public DocTestMachine sayLater() {
+        DeferredItems deferredItems = new DeferredItems();
+        getListItem().add(deferredItems);
+        getSession().deferred = true;
+        return new DeferredMachine(deferredItems.listItem, deferredItems.complete);
+    }
+
+    @Override
+    public DocTestMachine sayGroup() {
+        RequestGroupDocItem group = new RequestGroupDocItem();
+        getListItem().add(group);
+        return new DeferredMachine(group.getItems(), null);
     }
 
     @Override
     public void say(String say) {
-        listItem.add(new TextDocItem(say));
+        getListItem().add(new TextDocItem(say));
     }
 
     @Override
     public void sayNextSectionTitle(String sectionName) {
-        listItem.add(new SectionDocItem(sectionName));
+        getListItem().add(new SectionDocItem(sectionName));
     }
 
     /**
@@ -124,7 +343,7 @@ public class DocTestMachineImpl implements DocTestMachine {
             List<String> cookiesToShow) throws JSONException {
 
         if (apiRequest.uri != null) {
-            listItem.add(new RequestDocItem(apiRequest.httpMethod, uriHelper
+            getListItem().add(new RequestDocItem(apiRequest.httpMethod, uriHelper
                     .uriToString(apiRequest.uri), validateAndPrettifyPayload(apiRequest.getHeader("Content-Type"), payload), filterHelper
                     .filterMap(apiRequest.headers, headersToShow), filterHelper.filterMap(
                     apiRequest.cookies, cookiesToShow)));
@@ -140,7 +359,7 @@ public class DocTestMachineImpl implements DocTestMachine {
             long size, String mimeType, List<String> headersToShow, List<String> cookiesToShow) {
 
         if (apiRequest.uri != null) {
-            listItem.add(new RequestUploadDocItem(apiRequest.httpMethod, uriHelper
+            getListItem().add(new RequestUploadDocItem(apiRequest.httpMethod, uriHelper
                     .uriToString(apiRequest.uri), fileName, fileBody, size, mimeType, filterHelper
                     .filterMap(apiRequest.headers, headersToShow), filterHelper.filterMap(
                     apiRequest.cookies, cookiesToShow)));
@@ -153,18 +372,32 @@ public class DocTestMachineImpl implements DocTestMachine {
      */
     @Override
     public void sayResponse(ApiResponse response, List<String> headersToShow) throws Exception {
-        listItem.add(new ResponseDocItem(response, validateAndPrettifyPayload(response.getHeader("Content-Type"), response.payload),
-                filterHelper.filterMap(response.headers, headersToShow)));
+        sayResponse(response, null, headersToShow);
+    }
+
+    /**
+     * add new item for doctest, with the metrics of the request if the configuration shows them,
+     * and filter the headers from the ApiResponse
+     */
+    @Override
+    public void sayResponse(ApiResponse response, RequestMetrics metrics,
+            List<String> headersToShow) throws Exception {
+        Configuration configuration = fileHelper.getConfiguration();
+        if (configuration != null && !configuration.isShowRequestMetrics()) {
+            metrics = null;
+        }
+        getListItem().add(new ResponseDocItem(response, validateAndPrettifyPayload(response.getHeader("Content-Type"), response.payload),
+                filterHelper.filterMap(response.headers, headersToShow), metrics));
     }
 
     @Override
     public void sayVerify(String condition) {
-        listItem.add(new AssertDocItem(condition));
+        getListItem().add(new AssertDocItem(condition));
     }
 
     @Override
     public void sayPreformatted(String preformattedText) {
-        listItem.add(new JsonDocItem(preformattedText));
+        getListItem().add(new JsonDocItem(preformattedText));
     }
 
     /**
@@ -186,16 +419,31 @@ public class DocTestMachineImpl implements DocTestMachine {
             payloadToShow = "";
         } else if (contentType.contains("html")) {
             payloadToShow = "<xmp>" + payload + "</xmp>";
-        } else if (contentType.contains("json") || jsonHelper.isJsonValid(payload)) {
-            payloadToShow = jsonHelper.prettyPrintJson(payload);
+        } else if (contentType.contains("json") || jsonHelper.looksLikeJson(payload)) {
+            // returns the payload as it is if it is not a json
+            payloadToShow = prettyPrintJson(payload);
         } else {
-            payloadToShow = payload;
+            payloadToShow = jsonHelper.truncate(payload, getPayloadLimit());
         }
         return payloadToShow;
     }
 
+    private String prettyPrintJson(String payload) {
+        Configuration configuration = fileHelper.getConfiguration();
+        if (configuration == null) {
+            return jsonHelper.prettyPrintJson(payload);
+        }
+        return jsonHelper.prettyPrintJson(payload, configuration.getPayloadLimit(), configuration
+                .getPayloadArrayLimit(), configuration.getPayloadDepthLimit());
+    }
+
+    private int getPayloadLimit() {
+        Configuration configuration = fileHelper.getConfiguration();
+        return configuration == null ? 0 : configuration.getPayloadLimit();
+    }
+
     @Override
     public void say(String say, String[] strings) {
-        listItem.add(new MultipleTextDocItem(say, strings));
+        getListItem().add(new MultipleTextDocItem(say, strings));
     }
 }
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.devbliss.doctest.renderer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.devbliss.doctest.Configuration;
+import com.devbliss.doctest.items.DocItem;
+import com.devbliss.doctest.utils.FileHelper;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+/**
+ * {@link ReportRenderer} which hands the reports over to background threads if the asynchronous
+ * render mode is enabled in the {@link Configuration}, and renders them directly otherwise.
+ * <p>
+ * The rendering thread gets a copy of the list of items and the configuration of the test, so that
+ * the report is the same as if it had been rendered directly. The queue of pending reports is
+ * bounded: if it is full, the test renders its report itself.
+ * </p>
+ * <p>
+ * A report which could not be rendered in the background makes the next report handed over fail,
+ * or else {@link #awaitReports()} or {@link #finish()}, with an exception naming the report. The
+ * reports of the other test classes are rendered anyway.
+ * </p>
+ * <p>
+ * If the reports are deferred until the end of the test run, they are only collected, and
+ * rendered all together by {@link #finish()}, with one thread per processor.
+ * </p>
+ */
+public class AsyncReportRenderer implements FinishableReportRenderer {
+
+    public static final String DELEGATE = "delegateRenderer";
+    private static final int QUEUE_SIZE = 16;
+
+    private final ReportRenderer delegate;
+    private final FileHelper fileHelper;
+    private final Queue<Future<?>> pendingReports;
+    private final Queue<RenderTask> collectedReports;
+    private final AtomicReference<Exception> failure;
+    private ExecutorService executor;
+    private volatile boolean collecting;
+
+    @Inject
+    public AsyncReportRenderer(@Named(DELEGATE) ReportRenderer delegate, FileHelper fileHelper) {
+        this.delegate = delegate;
+        this.fileHelper = fileHelper;
+        pendingReports = new ConcurrentLinkedQueue<Future<?>>();
+        collectedReports = new ConcurrentLinkedQueue<RenderTask>();
+        failure = new AtomicReference<Exception>();
+    }
+
+    public void render(List<DocItem> listTemplates, String name, String introduction)
+            throws Exception {
+        Configuration configuration = fileHelper.getConfiguration();
+        if (collecting) {
+            collectedReports.add(createTask(listTemplates, name, introduction, configuration));
+            return;
+        }
+        if (configuration == null || !configuration.isAsyncRender()) {
+            delegate.render(listTemplates, name, introduction);
+        } else {
+            pendingReports.add(getExecutor(configuration).submit(
+                    createTask(listTemplates, name, introduction, configuration)));
+        }
+        // a previous report which could not be rendered fails the test class running now
+        throwFailure();
+    }
+
+    private RenderTask createTask(List<DocItem> listTemplates, String name, String introduction,
+            Configuration configuration) {
+        List<DocItem> items = null;
+        if (listTemplates != null) {
+            items = Collections.unmodifiableList(new ArrayList<DocItem>(listTemplates));
+        }
+        return new RenderTask(items, name, introduction, configuration);
+    }
+
+    /**
+     * Keeps the reports until {@link #finish()} is called.
+     */
+    public void deferUntilFinish() {
+        collecting = true;
+        if (delegate instanceof FinishableReportRenderer) {
+            ((FinishableReportRenderer) delegate).deferUntilFinish();
+        }
+    }
+
+    /**
+     * Renders the collected reports, waits until all the pending reports are rendered, then
+     * finishes the delegate.
+     */
+    public void finish() throws Exception {
+        renderCollectedReports();
+        awaitReports();
+        if (delegate instanceof FinishableReportRenderer) {
+            ((FinishableReportRenderer) delegate).finish();
+        }
+    }
+
+    /**
+     * Waits until the pending reports are rendered. The collected reports are kept until
+     * {@link #finish()}.
+     */
+    public void awaitReports() throws Exception {
+        Future<?> report;
+        while ((report = pendingReports.poll()) != null) {
+            try {
+                report.get();
+            } catch (ExecutionException e) {
+                // the failure has already been recorded by the task
+            }
+        }
+        throwFailure();
+    }
+
+    private void throwFailure() throws Exception {
+        Exception exception = failure.getAndSet(null);
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    private void renderCollectedReports() throws InterruptedException {
+        List<RenderTask> reports = new ArrayList<RenderTask>();
+        RenderTask report;
+        while ((report = collectedReports.poll()) != null) {
+            reports.add(report);
+        }
+        if (reports.isEmpty()) {
+            return;
+        }
+
+        int threads = Math.min(reports.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService collectedExecutor =
+                Executors.newFixedThreadPool(threads, new RenderThreadFactory());
+        try {
+            collectedExecutor.invokeAll(reports);
+        } finally {
+            collectedExecutor.shutdown();
+        }
+    }
+
+    private synchronized ExecutorService getExecutor(Configuration configuration) {
+        if (executor == null) {
+            int threads = Math.max(1, configuration.getRenderThreads());
+            executor =
+                    new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                            new ArrayBlockingQueue<Runnable>(QUEUE_SIZE), new RenderThreadFactory(),
+                            new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+        return executor;
+    }
+
+    private class RenderTask implements Callable<Void> {
+
+        private final List<DocItem> listTemplates;
+        private final String name;
+        private final String introduction;
+        private final Configuration configuration;
+
+        RenderTask(
+                List<DocItem> listTemplates,
+                String name,
+                String introduction,
+                Configuration configuration) {
+            this.listTemplates = listTemplates;
+            this.name = name;
+            this.introduction = introduction;
+            this.configuration = configuration;
+        }
+
+        public Void call() {
+            // the test thread itself renders the report if the queue is full
+            Configuration previousConfiguration = fileHelper.setRenderConfiguration(configuration);
+            try {
+                delegate.render(listTemplates, name, introduction);
+            } catch (Exception e) {
+                failure.compareAndSet(null, new Exception("The report " + name
+                        + " could not be rendered.", e));
+            } finally {
+                fileHelper.setRenderConfiguration(previousConfiguration);
+            }
+            return null;
+        }
+    }
+
+    private static class RenderThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "doctest-render-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
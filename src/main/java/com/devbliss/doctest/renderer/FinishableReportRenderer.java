@@ -0,0 +1,50 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.devbliss.doctest.renderer;
+
+/**
+ * {@link ReportRenderer} which may keep some work pending until the reports of the test run have
+ * all been rendered.
+ * <p>
+ * Implementing this interface is optional: the renderers which do not implement it are not told
+ * about the end of the test run.
+ * </p>
+ */
+public interface FinishableReportRenderer extends ReportRenderer {
+
+    /**
+     * Called once the reports have been rendered, e.g. at the end of the test run. Writes
+     * everything which is still pending.
+     * 
+     * @throws Exception
+     */
+    void finish() throws Exception;
+
+    /**
+     * Called by the last test class which is running, once its report has been handed over.
+     * Waits until the reports handed over so far are rendered, so that a report which could not be
+     * rendered makes a test class fail instead of being lost when the JVM shuts down.
+     * 
+     * @throws Exception if a report could not be rendered
+     */
+    void awaitReports() throws Exception;
+
+    /**
+     * Called before the tests run if the end of the test run is known, e.g. by the
+     * {@link com.devbliss.doctest.DocTestRunListener}. The reports may then be kept until
+     * {@link #finish()} is called, and rendered all together.
+     */
+    void deferUntilFinish();
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.devbliss.doctest.renderer.html;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Map;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.CharStreams;
+import com.google.common.io.Closeables;
+
+/**
+ * Cache of the css and javascript files of the html reports.
+ * <p>
+ * The files are read once from the classpath as UTF-8, the first time one of them is needed, and
+ * shared by all the renderers of the process.
+ * </p>
+ */
+public final class ClasspathAssets {
+
+    public static final String CSS = "/htmlStyle.css";
+    private static final ImmutableList<String> SCRIPTS = ImmutableList.of("/script.js",
+            "/jquery-1.8.0.min.js");
+
+    private static final String NO_CSS = "no css";
+    private static final String NO_JS = "no js";
+
+    private ClasspathAssets() {}
+
+    /**
+     * Holds the content of the files. The class is only loaded, and therefore the files only read,
+     * when one of them is accessed for the first time.
+     */
+    private static class Holder {
+
+        static final Map<String, String> ASSETS = loadAssets();
+        static final String JS_CODE = concatScripts();
+
+        private static Map<String, String> loadAssets() {
+            ImmutableMap.Builder<String, String> assets = ImmutableMap.builder();
+            put(assets, CSS);
+            for (String script : SCRIPTS) {
+                put(assets, script);
+            }
+            return assets.build();
+        }
+
+        private static void put(ImmutableMap.Builder<String, String> assets, String resource) {
+            String content = readResource(resource);
+            if (content != null) {
+                assets.put(resource, content);
+            }
+        }
+
+        private static String concatScripts() {
+            StringBuilder builder = new StringBuilder();
+            for (String script : SCRIPTS) {
+                String content = ASSETS.get(script);
+                if (content == null) {
+                    return NO_JS;
+                }
+                builder.append(content);
+            }
+            return builder.toString();
+        }
+    }
+
+    private static String readResource(String resource) {
+        InputStream stream = ClasspathAssets.class.getResourceAsStream(resource);
+        if (stream == null) {
+            return null;
+        }
+        try {
+            return CharStreams.toString(new InputStreamReader(stream, Charsets.UTF_8));
+        } catch (IOException e) {
+            return null;
+        } finally {
+            Closeables.closeQuietly(stream);
+        }
+    }
+
+    /**
+     * Returns the content of the given file, or null if it could not be read.
+     *
+     * @param resource {@link #CSS} or one of {@link #getScripts()}
+     * @return
+     */
+    public static String get(String resource) {
+        return Holder.ASSETS.get(resource);
+    }
+
+    /**
+     * Returns the javascript files, in the order in which the reports have to load them.
+     *
+     * @return
+     */
+    public static ImmutableList<String> getScripts() {
+        return SCRIPTS;
+    }
+
+    public static String getCss() {
+        String css = get(CSS);
+        return css == null ? NO_CSS : css;
+    }
+
+    /**
+     * Returns the content of all the javascript files, one after the other.
+     *
+     * @return
+     */
+    public static String getJsCode() {
+        return Holder.JS_CODE;
+    }
+}
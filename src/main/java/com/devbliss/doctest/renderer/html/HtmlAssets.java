@@ -0,0 +1,136 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.devbliss.doctest.renderer.html;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.devbliss.doctest.Configuration;
+import com.devbliss.doctest.utils.FileHelper;
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.google.inject.Inject;
+
+/**
+ * Writes the css and javascript files used by the html reports into the output directory, so that
+ * the reports can link to them instead of inlining them.
+ * <p>
+ * Each file is written once per output directory. Its name contains the hash of its content, so
+ * that a file which already exists does not have to be written again and browsers can cache it.
+ * </p>
+ */
+public class HtmlAssets {
+
+    static final String DIRECTORY = "assets/";
+
+    private final FileHelper fileHelper;
+    private final Set<String> preparedDirectories;
+    private String stylesheet;
+    private List<String> scripts;
+
+    @Inject
+    public HtmlAssets(FileHelper fileHelper) {
+        this.fileHelper = fileHelper;
+        preparedDirectories = new HashSet<String>();
+    }
+
+    /**
+     * Returns true if the reports have to link to the shared files.
+     *
+     * @return
+     */
+    public boolean isShared() {
+        Configuration configuration = fileHelper.getConfiguration();
+        return configuration != null && configuration.isSharedAssets();
+    }
+
+    /**
+     * Returns the link to the css file, relative to the output directory.
+     *
+     * @return
+     */
+    public synchronized String getStylesheet() {
+        prepareOutputDirectory();
+        return stylesheet;
+    }
+
+    /**
+     * Returns the links to the javascript files, relative to the output directory.
+     *
+     * @return
+     */
+    public synchronized List<String> getScripts() {
+        prepareOutputDirectory();
+        return scripts;
+    }
+
+    private void prepareOutputDirectory() {
+        String directory = fileHelper.getConfiguration().getHtmlOutputDirectory();
+        if (preparedDirectories.contains(directory)) {
+            return;
+        }
+
+        stylesheet = writeAsset(directory, ClasspathAssets.CSS);
+        List<String> links = new ArrayList<String>();
+        for (String script : ClasspathAssets.getScripts()) {
+            links.add(writeAsset(directory, script));
+        }
+        scripts = Collections.unmodifiableList(links);
+        preparedDirectories.add(directory);
+    }
+
+    /**
+     * Writes the given resource into the assets directory, if it does not exist yet.
+     * <p>
+     * Several surefire forks may publish the same file at the same time: the content is written to
+     * a temporary file which is then renamed, so that a report never links to a half written file.
+     * </p>
+     *
+     * @return the link to the written file
+     */
+    private String writeAsset(String directory, String resource) {
+        String content = ClasspathAssets.get(resource);
+        if (content == null) {
+            throw new IllegalStateException("The resource " + resource
+                    + " could not be read from the classpath.");
+        }
+        String link = DIRECTORY + getHashedName(resource, content);
+        String nameCompletePath = directory + link;
+        File file = new File(nameCompletePath);
+        if (!file.exists()) {
+            try {
+                fileHelper.writeFile(nameCompletePath, content);
+            } catch (IllegalStateException e) {
+                // another fork may have published the same file in the meantime
+                if (!file.isFile()) {
+                    throw e;
+                }
+            }
+        }
+        return link;
+    }
+
+    static String getHashedName(String resource, String content) {
+        String name = resource.substring(resource.lastIndexOf('/') + 1);
+        int extension = name.lastIndexOf('.');
+        String hash = Hashing.sha1().hashBytes(content.getBytes(Charsets.UTF_8)).toString();
+        return name.substring(0, extension) + "-" + hash.substring(0, 12)
+                + name.substring(extension);
+    }
+}
@@ -14,13 +14,21 @@
 
 package com.devbliss.doctest.renderer.html;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import com.devbliss.doctest.items.DocItem;
 import com.devbliss.doctest.items.IndexFileDocItem;
 import com.devbliss.doctest.items.LinkDocItem;
 import com.devbliss.doctest.items.MenuDocItem;
+import com.devbliss.doctest.items.RequestDocItem;
+import com.devbliss.doctest.items.RequestGroupDocItem;
+import com.devbliss.doctest.renderer.FinishableReportRenderer;
 import com.devbliss.doctest.utils.FileHelper;
+import com.devbliss.doctest.utils.ReportManifest;
 import com.google.inject.Inject;
 
 /**
@@ -33,25 +41,113 @@ import com.google.inject.Inject;
  * Means each test driven by DocTestMachineImpl generates a new index.html. But
  * this should be cheap in terms of time consumed.
  * 
+ * If the index is deferred, the generated reports are added to the {@link ReportManifest} of the
+ * output directory instead, and the index is built from the manifest once, when the reports are
+ * finished.
+ * 
  * @author rbauer, bmary
  * 
  */
-public class HtmlIndexFileRenderer extends AbstractHtmlReportRenderer {
+public class HtmlIndexFileRenderer extends AbstractHtmlReportRenderer implements
+        FinishableReportRenderer {
+
+    private static final String TITLE = "List of doctest files";
 
     private final FileHelper fileHelper;
+    private final ReportManifest manifest;
+    private final Set<String> pendingDirectories;
 
     @Inject
-    public HtmlIndexFileRenderer(HtmlItems htmlItems, FileHelper fileHelper) {
+    public HtmlIndexFileRenderer(
+            HtmlItems htmlItems,
+            FileHelper fileHelper,
+            ReportManifest manifest) {
         super(htmlItems);
         this.fileHelper = fileHelper;
+        this.manifest = manifest;
+        pendingDirectories = new LinkedHashSet<String>();
     }
 
     public void render(List<DocItem> listItems, String name, String introduction) throws Exception {
         String nameWithExtension = fileHelper.getCompleteFileName(INDEX, HTML_EXTENSION);
         List<LinkDocItem> files = fileHelper.getListOfFile(nameWithExtension);
-        MenuDocItem menu = new MenuDocItem("List of doctest files", files);
+        writeIndex(nameWithExtension, name, files);
+    }
+
+    private void writeIndex(String nameWithExtension, String name, List<LinkDocItem> files) {
+        MenuDocItem menu = new MenuDocItem(TITLE, files);
         String body = htmlItems.getListFilesTemplate(menu);
         IndexFileDocItem index = new IndexFileDocItem(name, body);
         fileHelper.writeFile(nameWithExtension, htmlItems.getIndexTemplate(index));
     }
+
+    /**
+     * Adds the generated report to the manifest of the output directory. The index of this
+     * directory will be rendered by {@link #renderPendingIndexes()}.
+     * 
+     * @param name name of the report without extension
+     * @param listItems items of the report
+     * @throws IOException
+     */
+    public void addReport(String name, List<DocItem> listItems) throws IOException {
+        int requests = 0;
+        for (DocItem item : listItems) {
+            if (item instanceof RequestDocItem) {
+                requests++;
+            } else if (item instanceof RequestGroupDocItem) {
+                requests += ((RequestGroupDocItem) item).getRequestCount();
+            }
+        }
+        String directory = fileHelper.getConfiguration().getHtmlOutputDirectory();
+        manifest.append(directory, new ReportManifest.Entry(name + HTML_EXTENSION, name,
+                listItems.size(), requests, System.currentTimeMillis()));
+
+        synchronized (this) {
+            pendingDirectories.add(directory);
+        }
+    }
+
+    public void finish() throws IOException {
+        renderPendingIndexes();
+    }
+
+    public void deferUntilFinish() {
+        // the index is rendered when it is asked for
+    }
+
+    public void awaitReports() {
+        // the pending indexes are rendered by finish()
+    }
+
+    /**
+     * Renders the index of each output directory which got new reports since the last call, using
+     * the manifest of the directory. If the manifest of a directory can not be read, the other
+     * indexes are rendered anyway and the first failure is thrown at the end.
+     * 
+     * @throws IOException
+     */
+    public synchronized void renderPendingIndexes() throws IOException {
+        IOException failure = null;
+        for (String directory : pendingDirectories) {
+            try {
+                renderFromManifest(directory);
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        pendingDirectories.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void renderFromManifest(String directory) throws IOException {
+        List<LinkDocItem> files = new ArrayList<LinkDocItem>();
+        for (ReportManifest.Entry entry : manifest.read(directory)) {
+            files.add(new LinkDocItem(entry.getFileName(), entry.getFileName()));
+        }
+        writeIndex(directory + INDEX + HTML_EXTENSION, INDEX, files);
+    }
 }
@@ -15,17 +15,31 @@
 package com.devbliss.doctest.renderer.html;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import com.devbliss.doctest.items.AssertDocItem;
 import com.devbliss.doctest.items.DocItem;
+import com.devbliss.doctest.items.HighlightedTextDocItem;
 import com.devbliss.doctest.items.IndexFileDocItem;
+import com.devbliss.doctest.items.JsonDocItem;
+import com.devbliss.doctest.items.LoadReportDocItem;
 import com.devbliss.doctest.items.MenuDocItem;
+import com.devbliss.doctest.items.MultipleTextDocItem;
 import com.devbliss.doctest.items.ReportFileDocItem;
-import com.google.common.io.CharStreams;
+import com.devbliss.doctest.items.RequestDocItem;
+import com.devbliss.doctest.items.RequestGroupDocItem;
+import com.devbliss.doctest.items.RequestSummaryDocItem;
+import com.devbliss.doctest.items.RequestUploadDocItem;
+import com.devbliss.doctest.items.ResponseDocItem;
+import com.devbliss.doctest.items.SectionDocItem;
+import com.devbliss.doctest.items.TextDocItem;
 import com.google.inject.Inject;
 
 import freemarker.template.Configuration;
@@ -33,65 +47,203 @@ import freemarker.template.Template;
 
 /**
  * Items used by the {@link HtmlRenderer} to build the html report.
+ * <p>
+ * All the templates are loaded once when the {@link HtmlItems} are created. Each {@link DocItem}
+ * class is mapped to its template, so that rendering an item does not need to look up the template
+ * again. Templates of unknown {@link DocItem} implementations are resolved by their item name the
+ * first time they are rendered.
+ * </p>
+ * <p>
+ * The css and javascript code is inlined into each report, unless the {@link HtmlAssets} are
+ * shared.
+ * </p>
  * 
  * @author bmary
  * 
  */
 public class HtmlItems {
 
+    private static final String TEMPLATE_EXTENSION = ".ftl";
+
     private final Configuration configuration;
+    private final HtmlAssets assets;
+    private final Template indexTemplate;
+    private final Template reportFileTemplate;
+    private final Template listFilesTemplate;
+    private final ConcurrentMap<Class<?>, Template> itemTemplates;
 
     @Inject
-    public HtmlItems(Configuration configuration) {
+    public HtmlItems(Configuration configuration, HtmlAssets assets) throws IOException {
         this.configuration = configuration;
+        this.assets = assets;
+        indexTemplate = loadTemplate("index");
+        reportFileTemplate = loadTemplate("htmlFile");
+        listFilesTemplate = loadTemplate("listFiles");
+
+        itemTemplates = new ConcurrentHashMap<Class<?>, Template>();
+        Template textTemplate = loadTemplate("text");
+        Template requestTemplate = loadTemplate("request");
+        itemTemplates.put(AssertDocItem.class, loadTemplate("assert"));
+        itemTemplates.put(HighlightedTextDocItem.class, loadTemplate("inlinehighlight"));
+        itemTemplates.put(JsonDocItem.class, loadTemplate("json"));
+        itemTemplates.put(LoadReportDocItem.class, loadTemplate("loadReport"));
+        itemTemplates.put(MultipleTextDocItem.class, textTemplate);
+        itemTemplates.put(RequestDocItem.class, requestTemplate);
+        itemTemplates.put(RequestUploadDocItem.class, requestTemplate);
+        itemTemplates.put(RequestGroupDocItem.class, loadTemplate("requestGroup"));
+        itemTemplates.put(RequestSummaryDocItem.class, loadTemplate("requestSummary"));
+        itemTemplates.put(ResponseDocItem.class, loadTemplate("response"));
+        itemTemplates.put(SectionDocItem.class, loadTemplate("section"));
+        itemTemplates.put(TextDocItem.class, textTemplate);
+        itemTemplates.put(IndexFileDocItem.class, indexTemplate);
+        itemTemplates.put(ReportFileDocItem.class, reportFileTemplate);
+    }
+
+    private Template loadTemplate(String itemName) throws IOException {
+        return configuration.getTemplate(itemName + TEMPLATE_EXTENSION);
+    }
+
+    /**
+     * Returns the template of the given item. Items which are not known yet are resolved by their
+     * item name and added to the table.
+     */
+    private Template getTemplate(DocItem item) {
+        Template template = itemTemplates.get(item.getClass());
+        if (template == null) {
+            try {
+                template = loadTemplate(item.getItemName());
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            itemTemplates.putIfAbsent(item.getClass(), template);
+        }
+        return template;
     }
 
-    private String init(String templateName, DocItem item) {
+    private String init(Template template, Object item) {
         StringWriter writer = new StringWriter();
-        Template template;
+        write(template, item, writer);
+        return writer.toString();
+    }
+
+    private void write(Template template, Object item, Writer writer) {
         try {
-            template = configuration.getTemplate(templateName);
             template.process(item, writer);
-            return writer.toString();
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
-    private static String getCss() {
-        try {
-            InputStream htmlCSSStream = HtmlItems.class.getResourceAsStream("/htmlStyle.css");
-            return CharStreams.toString(new InputStreamReader(htmlCSSStream));
-        } catch (IOException e) {
-            return "no css";
+    public String getIndexTemplate(IndexFileDocItem item) {
+        if (assets.isShared()) {
+            item.setCssFile(assets.getStylesheet());
+        } else {
+            item.setCss(ClasspathAssets.getCss());
         }
+        return init(indexTemplate, item);
     }
 
-    public String getIndexTemplate(IndexFileDocItem item) {
-        item.setCss(getCss());
-        return init("index.ftl", item);
+    public String getReportFileTemplate(ReportFileDocItem item) {
+        setAssets(item);
+        return init(reportFileTemplate, item);
     }
 
-    public String getReportFileTemplate(ReportFileDocItem item) {
-        item.setCss(getCss());
-        return init("htmlFile.ftl", item);
+    private void setAssets(ReportFileDocItem item) {
+        if (assets.isShared()) {
+            item.setCssFile(assets.getStylesheet());
+            item.setJsFiles(assets.getScripts());
+        } else {
+            item.setCss(ClasspathAssets.getCss());
+        }
+    }
+
+    /**
+     * Renders the report straight into the given {@link Writer}.
+     * 
+     * @param item
+     * @param writer
+     */
+    public void writeReportFileTemplate(ReportFileDocItem item, Writer writer) {
+        setAssets(item);
+        write(reportFileTemplate, item, writer);
     }
 
     public String getListFilesTemplate(MenuDocItem item) {
-        StringWriter writer = new StringWriter();
-        Template template;
-        try {
-            template = configuration.getTemplate("listFiles.ftl");
-            Map<String, Object> map = new HashMap<String, Object>();
-            map.put("files", item.getFiles());
-            template.process(map, writer);
-            return writer.toString();
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        return init(listFilesTemplate, getListFilesModel(item));
+    }
+
+    public void writeListFilesTemplate(MenuDocItem item, Writer writer) {
+        write(listFilesTemplate, getListFilesModel(item), writer);
+    }
+
+    private Map<String, Object> getListFilesModel(MenuDocItem item) {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("files", item.getFiles());
+        return map;
     }
 
     public String getTemplateForItem(DocItem item) {
-        return init(item.getItemName() + ".ftl", item);
+        return init(getTemplate(item), getModel(item));
+    }
+
+    public void writeTemplateForItem(DocItem item, Writer writer) {
+        write(getTemplate(item), getModel(item), writer);
+    }
+
+    private Object getModel(DocItem item) {
+        if (item instanceof RequestGroupDocItem) {
+            return getRequestGroupModel((RequestGroupDocItem) item);
+        }
+        return item;
+    }
+
+    /**
+     * Splits the items of the group into one row per request. A row sums up the request and its
+     * response, and holds their rendered items as details.
+     */
+    private Map<String, Object> getRequestGroupModel(RequestGroupDocItem group) {
+        List<DocItem> items;
+        synchronized (group.getItems()) {
+            items = new ArrayList<DocItem>(group.getItems());
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+        Map<String, Object> row = null;
+        StringWriter details = null;
+        for (DocItem item : items) {
+            if (row == null || item instanceof RequestDocItem) {
+                row = new HashMap<String, Object>();
+                row.put("id", group.getId() + "_" + rows.size());
+                rows.add(row);
+                details = new StringWriter();
+            }
+            if (item instanceof RequestDocItem) {
+                RequestDocItem request = (RequestDocItem) item;
+                row.put("http", request.getHttp());
+                row.put("uri", request.getUri());
+            } else if (item instanceof ResponseDocItem) {
+                row.put("responseCode", ((ResponseDocItem) item).getResponseCode());
+            }
+            write(getTemplate(item), item, details);
+            row.put("details", details.toString());
+        }
+
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("id", group.getId());
+        map.put("rows", rows);
+        return map;
+    }
+
+    /**
+     * Renders a whole run of items one after the other into the given {@link Writer}, without
+     * building an intermediate {@link String} for each of them.
+     * 
+     * @param items
+     * @param writer
+     */
+    public void writeTemplatesForItems(List<? extends DocItem> items, Writer writer) {
+        for (DocItem item : items) {
+            write(getTemplate(item), getModel(item), writer);
+        }
     }
 }
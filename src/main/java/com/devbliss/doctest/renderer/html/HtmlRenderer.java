@@ -14,12 +14,16 @@
 
 package com.devbliss.doctest.renderer.html;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
+import com.devbliss.doctest.Configuration;
+import com.devbliss.doctest.httpfactory.RequestMetrics;
 import com.devbliss.doctest.items.DocItem;
 import com.devbliss.doctest.items.HighlightedTextDocItem;
 import com.devbliss.doctest.items.JsonDocItem;
@@ -27,29 +31,42 @@ import com.devbliss.doctest.items.LinkDocItem;
 import com.devbliss.doctest.items.MenuDocItem;
 import com.devbliss.doctest.items.MultipleTextDocItem;
 import com.devbliss.doctest.items.ReportFileDocItem;
+import com.devbliss.doctest.items.RequestGroupDocItem;
+import com.devbliss.doctest.items.RequestSummaryDocItem;
+import com.devbliss.doctest.items.ResponseDocItem;
 import com.devbliss.doctest.items.SectionDocItem;
+import com.devbliss.doctest.renderer.FinishableReportRenderer;
 import com.devbliss.doctest.renderer.ReportRenderer;
 import com.devbliss.doctest.utils.FileHelper;
 import com.devbliss.doctest.utils.JSONHelper;
 import com.google.inject.Inject;
 
+import freemarker.core.Environment;
+import freemarker.template.TemplateDirectiveBody;
+import freemarker.template.TemplateDirectiveModel;
+import freemarker.template.TemplateException;
+import freemarker.template.TemplateModel;
+
 /**
  * Html-implementation of the {@link ReportRenderer}.
  * <p>
  * Each time that the function {@link #render(List, String)} is called, a report file is created for
  * the test case and an index file will be generated.
  * </p>
+ * <p>
+ * If the streaming render mode is enabled in the {@link Configuration}, the items are written
+ * directly into the report file instead of being collected in a buffer first.
+ * </p>
  * 
  * @author bmary
  * 
  */
-public class HtmlRenderer extends AbstractHtmlReportRenderer implements ReportRenderer {
+public class HtmlRenderer extends AbstractHtmlReportRenderer implements FinishableReportRenderer {
 
     private final HtmlIndexFileRenderer indexFileGenerator;
-    private int sectionNumber = 0;
-    private final Map<String, String> sections;
     private final FileHelper helper;
     private final JSONHelper jsonhelper;
+    private volatile boolean deferred;
 
     @Inject
     public HtmlRenderer(
@@ -61,48 +78,178 @@ public class HtmlRenderer extends AbstractHtmlReportRenderer implements ReportRe
         this.indexFileGenerator = indexFileGenerator;
         this.helper = abstractReportRenderer;
         this.jsonhelper = jsonhelper;
-        sections = new LinkedHashMap<String, String>();
     }
 
     public void render(List<DocItem> listTemplates, String name, String introduction)
             throws Exception {
         if (listTemplates != null && !listTemplates.isEmpty()) {
-            String items = appendItemsToBuffer(listTemplates);
-            ReportFileDocItem report = new ReportFileDocItem(name, introduction, items);
             String nameWithExtension = helper.getCompleteFileName(name, HTML_EXTENSION);
-            helper.writeFile(nameWithExtension, htmlItems.getReportFileTemplate(report));
+            List<DocItem> reportItems = addRequestSummary(listTemplates);
+            if (isStreamingRender()) {
+                streamReport(reportItems, name, introduction, nameWithExtension);
+            } else {
+                String items = appendItemsToBuffer(reportItems);
+                ReportFileDocItem report = new ReportFileDocItem(name, introduction, items);
+                helper.writeFile(nameWithExtension, htmlItems.getReportFileTemplate(report));
+            }
+
+            if (isDeferredIndex()) {
+                indexFileGenerator.addReport(name, listTemplates);
+            } else {
+                indexFileGenerator.render(null, INDEX, introduction);
+            }
+        }
+    }
+
+    public void finish() throws IOException {
+        indexFileGenerator.finish();
+    }
+
+    public void awaitReports() {
+        // the reports are rendered directly
+    }
+
+    /**
+     * Defers the index, whatever the {@link Configuration} says: it is rendered once, by
+     * {@link #finish()}.
+     */
+    public void deferUntilFinish() {
+        deferred = true;
+    }
+
+    private boolean isStreamingRender() {
+        Configuration configuration = helper.getConfiguration();
+        return configuration != null && configuration.isStreamingRender();
+    }
+
+    private boolean isDeferredIndex() {
+        Configuration configuration = helper.getConfiguration();
+        return deferred || configuration != null && configuration.isDeferredIndex();
+    }
 
-            indexFileGenerator.render(null, INDEX, introduction);
+    /**
+     * Writes the report directly into the file. The items are rendered one after the other into
+     * the output of the report template, so that the complete report never has to be held in
+     * memory.
+     */
+    private void streamReport(List<DocItem> listTemplates, String name, String introduction,
+            String nameWithExtension) throws IOException {
+        MenuDocItem sectionList = getSectionList(listTemplates);
+        ReportFileDocItem report = new ReportFileDocItem(name, introduction, null);
+        report.setStreamedItems(new StreamedItems(listTemplates, sectionList));
+
+        Writer writer = helper.openFileWriter(nameWithExtension);
+        boolean written = false;
+        try {
+            htmlItems.writeReportFileTemplate(report, writer);
+            written = true;
+        } finally {
+            if (written) {
+                writer.close();
+            } else {
+                // the report is not replaced by a half written one
+                helper.discardFileWriter(writer);
+            }
         }
     }
 
     private String appendItemsToBuffer(List<DocItem> listTemplates) {
-        sections.clear();
         StringBuffer buffer = new StringBuffer();
-        StringBuffer tempBuffer = new StringBuffer();
+        buffer.append(htmlItems.getListFilesTemplate(getSectionList(listTemplates)));
         for (DocItem item : listTemplates) {
-            if (item instanceof SectionDocItem) {
-                tempBuffer.append(getSectionDocItem((SectionDocItem) item));
-            } else if (item instanceof MultipleTextDocItem) {
-                tempBuffer.append(getMultipleTextDocItem((MultipleTextDocItem) item));
-            } else {
-                tempBuffer.append(getTemplateForItem(item));
+            if (item instanceof MultipleTextDocItem) {
+                prepareMultipleTextDocItem((MultipleTextDocItem) item);
             }
+            buffer.append(getTemplateForItem(item));
         }
-
-        appendSectionList(buffer);
-        buffer.append(tempBuffer);
         return buffer.toString();
     }
 
     /**
+     * Puts the median, the 95th percentile and the maximum of the request times by endpoint at the
+     * top of the report, if the responses of the report carry the metrics of their requests.
      * 
-     * Renders a MultipleTextDocItem consisting of multiple Json and Text Elements.
+     * @param listTemplates
+     * @return
+     */
+    private List<DocItem> addRequestSummary(List<DocItem> listTemplates) {
+        Map<String, List<Double>> times = new LinkedHashMap<String, List<Double>>();
+        collectRequestTimes(listTemplates, times);
+        if (times.isEmpty()) {
+            return listTemplates;
+        }
+
+        List<RequestSummaryDocItem.Entry> entries = new ArrayList<RequestSummaryDocItem.Entry>();
+        for (Map.Entry<String, List<Double>> endpoint : times.entrySet()) {
+            List<Double> endpointTimes = endpoint.getValue();
+            Collections.sort(endpointTimes);
+            entries.add(new RequestSummaryDocItem.Entry(endpoint.getKey(), endpointTimes.size(),
+                    getPercentile(endpointTimes, 50), getPercentile(endpointTimes, 95),
+                    endpointTimes.get(endpointTimes.size() - 1)));
+        }
+        List<DocItem> items = new ArrayList<DocItem>(listTemplates.size() + 1);
+        items.add(new RequestSummaryDocItem(entries));
+        items.addAll(listTemplates);
+        return items;
+    }
+
+    private void collectRequestTimes(List<DocItem> listTemplates, Map<String, List<Double>> times) {
+        for (DocItem item : listTemplates) {
+            if (item instanceof ResponseDocItem) {
+                RequestMetrics metrics = ((ResponseDocItem) item).getMetrics();
+                if (metrics != null) {
+                    List<Double> endpointTimes = times.get(metrics.getEndpoint());
+                    if (endpointTimes == null) {
+                        endpointTimes = new ArrayList<Double>();
+                        times.put(metrics.getEndpoint(), endpointTimes);
+                    }
+                    endpointTimes.add(metrics.getTotalTime());
+                }
+            } else if (item instanceof RequestGroupDocItem) {
+                List<DocItem> groupItems = ((RequestGroupDocItem) item).getItems();
+                synchronized (groupItems) {
+                    collectRequestTimes(new ArrayList<DocItem>(groupItems), times);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the nearest-rank percentile of the given sorted times.
+     */
+    private static double getPercentile(List<Double> sortedTimes, int percent) {
+        int rank = (int) Math.ceil(sortedTimes.size() * percent / 100.0);
+        return sortedTimes.get(Math.max(rank, 1) - 1);
+    }
+
+    /**
+     * Gives an id to each {@link SectionDocItem} of the list and returns the menu linking to them.
+     * The ids are numbered per report, so that several reports can be rendered at the same time.
      * 
-     * @param item
+     * @param listTemplates
      * @return
      */
-    private String getMultipleTextDocItem(MultipleTextDocItem item) {
+    private MenuDocItem getSectionList(List<DocItem> listTemplates) {
+        List<LinkDocItem> sections = new ArrayList<LinkDocItem>();
+        int sectionNumber = 0;
+        for (DocItem item : listTemplates) {
+            if (item instanceof SectionDocItem) {
+                SectionDocItem section = (SectionDocItem) item;
+                String sectionId = "section" + ++sectionNumber;
+                section.setHref(sectionId);
+                sections.add(new LinkDocItem("#" + sectionId, section.getTitle()));
+            }
+        }
+        return new MenuDocItem("", sections);
+    }
+
+    /**
+     * 
+     * Prepares a MultipleTextDocItem consisting of multiple Json and Text Elements to be rendered.
+     * 
+     * @param item
+     */
+    private void prepareMultipleTextDocItem(MultipleTextDocItem item) {
         for (int i = 0; i < item.getAdditionalStrings().length; i++) {
             if (jsonhelper.isJsonValid(item.getAdditionalStrings()[i])) {
                 item.getAdditionalStrings()[i] =
@@ -115,31 +262,37 @@ public class HtmlRenderer extends AbstractHtmlReportRenderer implements ReportRe
         }
 
         item.setText(String.format(item.getText(), (Object[]) item.getAdditionalStrings()));
-
-        return getTemplateForItem(item);
     }
 
     private String getTemplateForItem(DocItem item) {
         return htmlItems.getTemplateForItem(item);
     }
 
-    private String getSectionDocItem(SectionDocItem item) {
-        String sectionId = getSectionId();
-        String sectionName = item.getTitle();
-        sections.put("#" + sectionId, sectionName);
-        item.setHref(sectionId);
-        return getTemplateForItem(item);
-    }
+    /**
+     * Directive used by the report template to write the section list and the items into the
+     * output of the report.
+     */
+    private class StreamedItems implements TemplateDirectiveModel {
 
-    private void appendSectionList(StringBuffer buffer) {
-        List<LinkDocItem> files = new ArrayList<LinkDocItem>();
-        for (Entry<String, String> section : sections.entrySet()) {
-            files.add(new LinkDocItem(section.getKey(), section.getValue()));
+        private final List<DocItem> listTemplates;
+        private final MenuDocItem sectionList;
+
+        StreamedItems(List<DocItem> listTemplates, MenuDocItem sectionList) {
+            this.listTemplates = listTemplates;
+            this.sectionList = sectionList;
         }
-        buffer.append(htmlItems.getListFilesTemplate(new MenuDocItem("", files)));
-    }
 
-    private String getSectionId() {
-        return "section" + ++sectionNumber;
+        @SuppressWarnings("rawtypes")
+        public void execute(Environment env, Map params, TemplateModel[] loopVars,
+                TemplateDirectiveBody body) throws TemplateException, IOException {
+            Writer out = env.getOut();
+            htmlItems.writeListFilesTemplate(sectionList, out);
+            for (DocItem item : listTemplates) {
+                if (item instanceof MultipleTextDocItem) {
+                    prepareMultipleTextDocItem((MultipleTextDocItem) item);
+                }
+            }
+            htmlItems.writeTemplatesForItems(listTemplates, out);
+        }
     }
 }
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.devbliss.doctest.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fields excluded from a json, compiled once so that checking a field costs a few hash lookups
+ * whatever the number of exclusions.
+ * <p>
+ * A field name, e.g. <code>id</code>, excludes the fields with this name at any depth. A path,
+ * e.g. <code>owner.id</code>, excludes only the field <code>id</code> of the field
+ * <code>owner</code> of the root object. The wildcard <code>*</code> matches any field name, e.g.
+ * <code>*.id</code> excludes the field <code>id</code> of all the fields of the root object. The
+ * indexes of the arrays are not part of the paths: <code>items.id</code> excludes the field
+ * <code>id</code> of all the elements of the array <code>items</code>.
+ * </p>
+ */
+public class ExcludedPaths {
+
+    public static final String WILDCARD = "*";
+    private static final char SEPARATOR = '.';
+
+    private final Set<String> names = new HashSet<String>();
+    // the paths, as a tree of their segments
+    private final Node root = new Node();
+    private boolean hasPaths;
+
+    public ExcludedPaths(Collection<String> exclusions) {
+        if (exclusions != null) {
+            for (String exclusion : exclusions) {
+                if (exclusion == null) {
+                    continue;
+                }
+                if (exclusion.indexOf(SEPARATOR) < 0 && !exclusion.equals(WILDCARD)) {
+                    names.add(exclusion);
+                } else {
+                    addPath(exclusion);
+                }
+            }
+        }
+    }
+
+    private void addPath(String path) {
+        Node node = root;
+        int start = 0;
+        while (start <= path.length()) {
+            int end = path.indexOf(SEPARATOR, start);
+            if (end < 0) {
+                end = path.length();
+            }
+            node = node.getOrAddChild(path.substring(start, end));
+            start = end + 1;
+        }
+        node.excluded = true;
+        hasPaths = true;
+    }
+
+    /**
+     * Returns true if a field name is excluded at any depth.
+     * 
+     * @param name
+     * @return
+     */
+    public boolean isNameExcluded(String name) {
+        return names.contains(name);
+    }
+
+    /**
+     * Returns true if some paths are excluded, i.e. if the exclusion depends on the position of
+     * the fields and not only on their names.
+     * 
+     * @return
+     */
+    public boolean hasPaths() {
+        return hasPaths;
+    }
+
+    public boolean isEmpty() {
+        return names.isEmpty() && !hasPaths;
+    }
+
+    /**
+     * Returns the position of the root object of a json.
+     * 
+     * @return
+     */
+    public Position getRoot() {
+        if (!hasPaths) {
+            return new Position(Collections.<Node> emptyList());
+        }
+        return new Position(Collections.singletonList(root));
+    }
+
+    /**
+     * Position of an object in a json, i.e. the nodes of the excluded paths matching the path of
+     * the object.
+     */
+    public class Position {
+
+        private final List<Node> nodes;
+
+        private Position(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+
+        /**
+         * Returns true if the field with the given name of the object at this position is
+         * excluded.
+         * 
+         * @param name
+         * @return
+         */
+        public boolean isExcluded(String name) {
+            if (names.contains(name)) {
+                return true;
+            }
+            for (Node node : nodes) {
+                Node child = node.children.get(name);
+                if ((child != null && child.excluded)
+                        || (node.wildcard != null && node.wildcard.excluded)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns the position of the field with the given name of the object at this position.
+         * 
+         * @param name
+         * @return
+         */
+        public Position getField(String name) {
+            if (nodes.isEmpty()) {
+                return this;
+            }
+            List<Node> children = new ArrayList<Node>(nodes.size());
+            for (Node node : nodes) {
+                Node child = node.children.get(name);
+                if (child != null) {
+                    children.add(child);
+                }
+                if (node.wildcard != null) {
+                    children.add(node.wildcard);
+                }
+            }
+            return new Position(children);
+        }
+    }
+
+    private static class Node {
+
+        private final Map<String, Node> children = new HashMap<String, Node>();
+        private Node wildcard;
+        private boolean excluded;
+
+        Node getOrAddChild(String segment) {
+            if (segment.equals(WILDCARD)) {
+                if (wildcard == null) {
+                    wildcard = new Node();
+                }
+                return wildcard;
+            }
+            Node child = children.get(segment);
+            if (child == null) {
+                child = new Node();
+                children.put(segment, child);
+            }
+            return child;
+        }
+    }
+}
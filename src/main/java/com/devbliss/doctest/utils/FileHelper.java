@@ -14,20 +14,30 @@
 
 package com.devbliss.doctest.utils;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
+import java.io.FilterWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.Writer;
-import java.nio.MappedByteBuffer;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
-import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 
 import com.devbliss.doctest.Configuration;
 import com.devbliss.doctest.items.LinkDocItem;
 import com.devbliss.doctest.renderer.ReportRenderer;
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.io.LimitInputStream;
 
 /**
  * Defines some general methods to write a file and defines its name.
@@ -40,17 +50,31 @@ import com.devbliss.doctest.renderer.ReportRenderer;
  */
 public class FileHelper {
 
+    private static final String ENCODING = "UTF-8";
+    static final int MAX_WRITE_ATTEMPTS = 5;
+    private static final long FIRST_RETRY_DELAY = 10;
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_PREVIEWS = 256;
+    private static final String LINE_BREAK = "<br/>";
+    public static final String TRUNCATED = LINE_BREAK + "[...]";
+
     private Configuration configuration;
+    private final ThreadLocal<Configuration> threadConfiguration = new ThreadLocal<Configuration>();
+    private final Cache<String, Preview> previews = CacheBuilder.newBuilder()
+            .maximumSize(MAX_PREVIEWS).build();
+    private final FileNameRegistry fileNames = new FileNameRegistry();
 
     /**
-     * This writes out the file and retries if some other task has
-     * locked the file.
+     * Writes the given content as UTF-8 into the given file.
      * 
-     * This could cause a StackOverflowException, but I cannot
-     * think of any real case where this happens...
+     * The content is written into a temporary file of the same directory first, which then
+     * replaces the file, so that nobody can read a half-written file. If the file could not be
+     * written (e.g. because some other task has locked it), the write is retried a few times with
+     * an increasing delay.
      * 
-     * @param nameOfFile
-     * @throws InvalidReportException
+     * @param nameCompletePath
+     * @param finalDoc
+     * @throws IllegalStateException if the file could not be written after all the retries
      */
     public void writeFile(String nameCompletePath, String finalDoc) {
         // make sure the directory exists
@@ -59,46 +83,229 @@ public class FileHelper {
     }
 
     private void writeOutFile(String nameOfFile, String content) {
-        Writer fw = null;
-        if (content != null) {
+        if (content == null) {
+            return;
+        }
+
+        byte[] bytes = content.getBytes(Charsets.UTF_8);
+        File file = new File(nameOfFile);
+        long delay = FIRST_RETRY_DELAY;
+        for (int attempt = 1;; attempt++) {
             try {
-                fw = new FileWriter(nameOfFile);
-                fw.write(content);
+                writeAtomically(file, bytes);
+                fileNames.register(file);
+                return;
             } catch (IOException e) {
-                try {
-                    Thread.sleep(200);
-                    writeOutFile(nameOfFile, content);
-                } catch (InterruptedException err2) {
-                    writeOutFile(nameOfFile, content);
+                if (attempt == MAX_WRITE_ATTEMPTS) {
+                    throw new IllegalStateException("The file " + nameOfFile
+                            + " could not be written.", e);
+                }
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while writing the file " + nameOfFile
+                        + ".", e);
+            }
+            delay *= 2;
+        }
+    }
+
+    /**
+     * Writes the bytes into a hidden temporary file next to the given file, then renames it.
+     */
+    private void writeAtomically(File file, byte[] bytes) throws IOException {
+        File temporaryFile = createTemporaryFile(file);
+        try {
+            FileOutputStream stream = new FileOutputStream(temporaryFile);
+            try {
+                FileChannel channel = stream.getChannel();
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
                 }
             } finally {
-                closeFileWriter(fw);
+                stream.close();
+            }
+            replaceFile(temporaryFile, file);
+        } finally {
+            if (temporaryFile.exists()) {
+                temporaryFile.delete();
             }
         }
     }
 
-    private void closeFileWriter(Writer fw) {
-        if (fw != null) {
+    private static File createTemporaryFile(File file) throws IOException {
+        return File.createTempFile("." + file.getName(), ".tmp", file.getParentFile());
+    }
+
+    private static void replaceFile(File temporaryFile, File file) throws IOException {
+        // renameTo does not replace an existing file on every platform
+        if (!temporaryFile.renameTo(file) && !(file.delete() && temporaryFile.renameTo(file))) {
+            throw new IOException("The file " + temporaryFile + " could not be renamed to " + file
+                    + ".");
+        }
+    }
+
+    /**
+     * Opens a buffered UTF-8 {@link Writer} on the given file, so that a report can be written
+     * piece by piece without being held completely in memory.
+     * 
+     * Like {@link #writeFile(String, String)}, the content is written into a temporary file of the
+     * same directory, which replaces the file when the writer is closed. The caller has to close
+     * the returned writer once the content is complete, or to give it to
+     * {@link #discardFileWriter(Writer)} if the content could not be written.
+     * 
+     * @param nameCompletePath
+     * @return
+     * @throws IOException
+     */
+    public Writer openFileWriter(String nameCompletePath) throws IOException {
+        File file = new File(nameCompletePath);
+        // make sure the directory exists
+        file.getParentFile().mkdirs();
+        return new ReplacingFileWriter(file, createTemporaryFile(file));
+    }
+
+    /**
+     * Closes the given writer opened by {@link #openFileWriter(String)} without replacing the file,
+     * and deletes the content written so far.
+     * 
+     * @param writer
+     */
+    public void discardFileWriter(Writer writer) {
+        if (writer instanceof ReplacingFileWriter) {
+            ((ReplacingFileWriter) writer).discard();
+        }
+    }
+
+    /**
+     * Writes into a temporary file, which replaces the target file when the writer is closed.
+     */
+    private class ReplacingFileWriter extends FilterWriter {
+
+        private final File file;
+        private final File temporaryFile;
+        private boolean closed;
+
+        ReplacingFileWriter(File file, File temporaryFile) throws IOException {
+            super(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temporaryFile),
+                    ENCODING)));
+            this.file = file;
+            this.temporaryFile = temporaryFile;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                super.close();
+                replaceFile(temporaryFile, file);
+                fileNames.register(file);
+            } finally {
+                if (temporaryFile.exists()) {
+                    temporaryFile.delete();
+                }
+            }
+        }
+
+        void discard() {
+            if (closed) {
+                return;
+            }
+            closed = true;
             try {
-                fw.close();
+                super.close();
             } catch (IOException e) {
-                e.printStackTrace();
+                // the content is thrown away anyway
+            } finally {
+                temporaryFile.delete();
             }
         }
     }
 
     public String getCompleteFileName(String name, String extension) {
-        return configuration.getHtmlOutputDirectory() + name + extension;
+        return getConfiguration().getHtmlOutputDirectory() + name + extension;
     }
 
     public String readFile(File fileToUpload) throws IOException {
-        FileInputStream stream = new FileInputStream(fileToUpload);
+        return readPreview(fileToUpload, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reads the beginning of the given text file, at most the given number of bytes, and replaces
+     * its line breaks by html line breaks. If the file is longer, {@link #TRUNCATED} is appended.
+     * 
+     * The file is read as a stream, so that a big file is never held completely in memory. The
+     * previews of the last files are cached as long as the file is neither modified nor resized,
+     * so that a file uploaded by several tests is read only once.
+     * 
+     * @param fileToUpload
+     * @param limit maximum number of bytes to read
+     * @return
+     * @throws IOException
+     */
+    public String readFilePreview(File fileToUpload, long limit) throws IOException {
+        String key = fileToUpload.getAbsolutePath() + "|" + limit;
+        long length = fileToUpload.length();
+        long lastModified = fileToUpload.lastModified();
+        Preview preview = previews.getIfPresent(key);
+        if (preview == null || preview.length != length || preview.lastModified != lastModified) {
+            // the preview of the previous version of the file is replaced
+            preview = new Preview(length, lastModified, readPreview(fileToUpload, limit));
+            previews.put(key, preview);
+        }
+        return preview.text;
+    }
+
+    /**
+     * Preview of a file, with the size and the modification date of the file it has been read
+     * from.
+     */
+    private static class Preview {
+
+        private final long length;
+        private final long lastModified;
+        private final String text;
+
+        Preview(long length, long lastModified, String text) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.text = text;
+        }
+    }
+
+    private String readPreview(File file, long limit) throws IOException {
+        InputStream stream = new FileInputStream(file);
         try {
-            FileChannel fc = stream.getChannel();
-            MappedByteBuffer bb = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
-            /* Instead of using default, pass in a decoder. */
-            String body = Charset.forName("UTF-8").decode(bb).toString();
-            return body.replaceAll("\n", "<br/>");
+            InputStream limitedStream = new LimitInputStream(new BufferedInputStream(stream), limit);
+            Reader reader = new InputStreamReader(limitedStream, Charsets.UTF_8);
+            StringBuilder preview = new StringBuilder();
+            char[] buffer = new char[BUFFER_SIZE];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                int lineStart = 0;
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] == '\n') {
+                        preview.append(buffer, lineStart, i - lineStart).append(LINE_BREAK);
+                        lineStart = i + 1;
+                    }
+                }
+                preview.append(buffer, lineStart, read - lineStart);
+            }
+            if (file.length() > limit) {
+                // the limit may have cut a multi-byte character
+                int last = preview.length() - 1;
+                if (last >= 0 && preview.charAt(last) == '\uFFFD') {
+                    preview.setLength(last);
+                }
+                preview.append(TRUNCATED);
+            }
+            return preview.toString();
         } finally {
             stream.close();
         }
@@ -107,10 +314,10 @@ public class FileHelper {
     public List<LinkDocItem> getListOfFile(String fileName) {
         File[] files = fetchFilesInDirectory(fileName);
         List<LinkDocItem> list = new ArrayList<LinkDocItem>();
-        // fetch neither the file itself nor the hidden files
+        // fetch neither the file itself nor the hidden files and the directories
         for (File file : files) {
             if (!file.getPath().equals(fileName)) {
-                if (!file.isHidden()) {
+                if (!file.isHidden() && !file.isDirectory()) {
                     list.add(new LinkDocItem(file.getName(), file.getName()));
                 }
             }
@@ -129,23 +336,13 @@ public class FileHelper {
     }
 
     /**
-     * Returns true if the name of the file already exists its directory
+     * Returns true if the name of the file already exists in the output directory
      * 
      * @param fileName
      * @return
      */
     private boolean isFileNameAlreadyTaken(String fileName) {
-        String completeName = configuration.getHtmlOutputDirectory() + fileName;
-        File[] files = fetchFilesInDirectory(completeName);
-
-        if (files != null) {
-            for (File file : files) {
-                if (completeName.equals(file.getPath())) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return fileNames.isTaken(getConfiguration().getHtmlOutputDirectory(), fileName);
     }
 
     public void validateFileName(String fileName) throws AssertionError {
@@ -159,7 +356,44 @@ public class FileHelper {
         }
     }
 
+    /**
+     * Returns the configuration set for the current thread by {@link #setConfiguration(Configuration)}
+     * or {@link #setRenderConfiguration(Configuration)}, or else the configuration of the last test.
+     * 
+     * @return
+     */
+    public Configuration getConfiguration() {
+        Configuration currentConfiguration = threadConfiguration.get();
+        return currentConfiguration != null ? currentConfiguration : configuration;
+    }
+
+    /**
+     * Sets the configuration used by the current thread, e.g. a thread rendering a report in the
+     * background while the next test already set its own configuration. Passing null resets the
+     * thread to the configuration of the last test.
+     * 
+     * @param configuration
+     * @return the configuration the thread used before, so that it can be restored
+     */
+    public Configuration setRenderConfiguration(Configuration configuration) {
+        Configuration previousConfiguration = threadConfiguration.get();
+        if (configuration == null) {
+            threadConfiguration.remove();
+        } else {
+            threadConfiguration.set(configuration);
+        }
+        return previousConfiguration;
+    }
+
+    /**
+     * Sets the configuration of the current test. It is used by the current thread, and by the
+     * threads which have no configuration of their own, so that test classes running in parallel
+     * do not see each other's configuration.
+     * 
+     * @param configuration
+     */
     public void setConfiguration(Configuration configuration) {
         this.configuration = configuration;
+        setRenderConfiguration(configuration);
     }
 }
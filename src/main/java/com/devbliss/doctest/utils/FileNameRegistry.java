@@ -0,0 +1,87 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.devbliss.doctest.utils;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Names of the files of the output directories.
+ * <p>
+ * The names of the files of a directory are listed once, the first time the directory is used,
+ * and each file written afterwards is registered, so that checking whether a name is taken does
+ * not require to list the directory again. A name which is not registered is checked on the disk,
+ * so that the files written by other JVMs (e.g. surefire forks sharing the output directory) are
+ * found as well.
+ * </p>
+ */
+public class FileNameRegistry {
+
+    private final ConcurrentMap<String, Set<String>> directories =
+            new ConcurrentHashMap<String, Set<String>>();
+
+    /**
+     * Returns true if a file with the given name exists in the given directory.
+     * 
+     * @param directory
+     * @param fileName
+     * @return
+     */
+    public boolean isTaken(String directory, String fileName) {
+        Set<String> names = getNames(new File(directory));
+        if (names.contains(fileName)) {
+            return true;
+        }
+        if (new File(directory, fileName).exists()) {
+            names.add(fileName);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Registers the given file, which has just been written.
+     * 
+     * @param file
+     */
+    public void register(File file) {
+        File directory = file.getAbsoluteFile().getParentFile();
+        Set<String> names = directories.get(directory.getPath());
+        // a directory which has not been listed yet will be listed with the file
+        if (names != null) {
+            names.add(file.getName());
+        }
+    }
+
+    private Set<String> getNames(File directory) {
+        String key = directory.getAbsolutePath();
+        Set<String> names = directories.get(key);
+        if (names == null) {
+            names = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+            String[] files = directory.list();
+            if (files != null) {
+                Collections.addAll(names, files);
+            }
+            Set<String> existingNames = directories.putIfAbsent(key, names);
+            if (existingNames != null) {
+                names = existingNames;
+            }
+        }
+        return names;
+    }
+}
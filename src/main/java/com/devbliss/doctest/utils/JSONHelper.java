@@ -14,7 +14,21 @@
 
 package com.devbliss.doctest.utils;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.google.gson.ExclusionStrategy;
 import com.google.gson.FieldAttributes;
@@ -22,7 +36,9 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
-import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 /**
  * Utils class used to transform object into json-formatted {@link String}
@@ -33,6 +49,21 @@ import com.google.gson.JsonSyntaxException;
  */
 public class JSONHelper {
 
+    private static final String INDENT = "  ";
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+    private static final String MORE_ELEMENTS = "\u2026 %,d more elements";
+    private static final String MORE_CHARACTERS = "\u2026 %,d more characters";
+    private static final String TRUNCATED = "\u2026 truncated, the payload has %,d characters";
+    // marks the open arrays, which have no names
+    private static final Set<String> NO_NAMES = Collections.emptySet();
+
+    // Gson instances are thread-safe and cache the type adapters they build, so they are reused
+    private final Gson gson = new GsonBuilder().create();
+    private final Gson prettyGson = new GsonBuilder().setPrettyPrinting().create();
+    private final ConcurrentMap<List<Object>, FieldExclusion> fieldExclusions =
+            new ConcurrentHashMap<List<Object>, FieldExclusion>();
+    private final JsonParser jsonParser = new JsonParser();
+
     /**
      * Converts the given POJO into a Json representation.
      * 
@@ -53,13 +84,7 @@ public class JSONHelper {
      * @return
      */
     public String toJson(Object obj, boolean prettyPrint) {
-        GsonBuilder builder = new GsonBuilder();
-
-        if (prettyPrint) {
-            builder.setPrettyPrinting();
-        }
-
-        return builder.create().toJson(obj);
+        return (prettyPrint ? prettyGson : gson).toJson(obj);
     }
 
     /**
@@ -78,21 +103,48 @@ public class JSONHelper {
      * 
      * Converts the given POJO and will skip the given fields while doing so.
      * If prettyPrint is true, the output will be nicely formatted.
+     * <p>
+     * The fields can be given by their name or by their path, see {@link ExcludedPaths}.
+     * </p>
      * 
      * @param obj
      * @param excludedFields
      * @param prettyPrint
      * @return
      */
-    public String toJsonAndSkipCertainFields(Object obj, final List<String> excludedFields,
+    public String toJsonAndSkipCertainFields(Object obj, List<String> excludedFields,
             boolean prettyPrint) {
+        FieldExclusion exclusion = getFieldExclusion(excludedFields, prettyPrint);
+        if (!exclusion.paths.hasPaths()) {
+            return exclusion.gson.toJson(obj);
+        }
+        JsonElement tree = exclusion.gson.toJsonTree(obj);
+        new JsonComparator(gson, exclusion.paths).removeExcludedFields(tree);
+        return exclusion.gson.toJson(tree);
+    }
+
+    /**
+     * Returns the compiled exclusion of the given fields. One exclusion is created for each set of
+     * fields, whatever their order.
+     */
+    private FieldExclusion getFieldExclusion(List<String> excludedFields, boolean prettyPrint) {
+        Set<String> fields = new TreeSet<String>();
+        for (String field : excludedFields) {
+            if (field != null) {
+                fields.add(field);
+            }
+        }
+        List<Object> key = Arrays.<Object> asList(prettyPrint, fields);
+        FieldExclusion cachedExclusion = fieldExclusions.get(key);
+        if (cachedExclusion != null) {
+            return cachedExclusion;
+        }
+
+        final ExcludedPaths paths = new ExcludedPaths(fields);
+        // the fields excluded by their name are skipped by Gson, the paths are removed from the tree
         ExclusionStrategy strategy = new ExclusionStrategy() {
             public boolean shouldSkipField(FieldAttributes f) {
-                if (excludedFields.contains(f.getName())) {
-                    return true;
-                }
-
-                return false;
+                return paths.isNameExcluded(f.getName());
             }
 
             public boolean shouldSkipClass(Class<?> clazz) {
@@ -107,7 +159,103 @@ public class JSONHelper {
         if (prettyPrint)
             builder.setPrettyPrinting();
 
-        return builder.create().toJson(obj);
+        FieldExclusion newExclusion = new FieldExclusion(builder.create(), paths);
+        cachedExclusion = fieldExclusions.putIfAbsent(key, newExclusion);
+        return cachedExclusion != null ? cachedExclusion : newExclusion;
+    }
+
+    /**
+     * Compiled exclusion of some fields: the {@link Gson} skipping the fields excluded by their
+     * name and the excluded paths.
+     */
+    private static class FieldExclusion {
+
+        private final Gson gson;
+        private final ExcludedPaths paths;
+
+        FieldExclusion(Gson gson, ExcludedPaths paths) {
+            this.gson = gson;
+            this.paths = paths;
+        }
+    }
+
+    /**
+     * Compares the json trees of the given objects, except on the excluded fields (see
+     * {@link ExcludedPaths}). The order of the fields of an object does not matter and the
+     * comparison stops at the first difference. If the objects differ, the comparison also holds
+     * the json of both objects, e.g. to be shown by the IDE.
+     * 
+     * @param expected
+     * @param result
+     * @param excludedFields field names or paths, may be null
+     * @return
+     */
+    public JsonComparison compareJson(Object expected, Object result, List<String> excludedFields) {
+        Gson treeGson = gson;
+        ExcludedPaths excludedPaths = new ExcludedPaths(null);
+        if (excludedFields != null && !excludedFields.isEmpty()) {
+            FieldExclusion exclusion = getFieldExclusion(excludedFields, false);
+            treeGson = exclusion.gson;
+            excludedPaths = exclusion.paths;
+        }
+        JsonComparator comparator = new JsonComparator(gson, excludedPaths);
+        JsonElement expectedTree = treeGson.toJsonTree(expected);
+        JsonElement resultTree = treeGson.toJsonTree(result);
+        String difference = comparator.compare(expectedTree, resultTree);
+        comparator.removeExcludedFields(expectedTree);
+        if (difference != null) {
+            comparator.removeExcludedFields(resultTree);
+            return new JsonComparison(prettyGson.toJson(expectedTree), prettyGson.toJson(resultTree),
+                    difference);
+        }
+        return new JsonComparison(prettyGson.toJson(expectedTree), null);
+    }
+
+    /**
+     * Checks cheaply whether the given {@link String} may be a json, by looking at its first
+     * characters only. Plain text, csv, xml or html can be told apart from a json this way, without
+     * parsing them.
+     * 
+     * <p>
+     * The function returns true when the first character which is not a whitespace starts an
+     * object, an array, a string, a number or one of the literals <code>true</code>,
+     * <code>false</code> and <code>null</code>.
+     * </p>
+     * 
+     * @param payload
+     * @return
+     */
+    public boolean looksLikeJson(String payload) {
+        if (payload == null) {
+            return false;
+        }
+
+        int length = payload.length();
+        int start = 0;
+        while (start < length && (Character.isWhitespace(payload.charAt(start))
+                || payload.charAt(start) == BYTE_ORDER_MARK)) {
+            start++;
+        }
+        if (start == length) {
+            return false;
+        }
+
+        char first = payload.charAt(start);
+        switch (first) {
+            case '{':
+            case '[':
+            case '"':
+            case '-':
+                return true;
+            case 't':
+                return payload.startsWith("true", start);
+            case 'f':
+                return payload.startsWith("false", start);
+            case 'n':
+                return payload.startsWith("null", start);
+            default:
+                return first >= '0' && first <= '9';
+        }
     }
 
     /**
@@ -131,31 +279,329 @@ public class JSONHelper {
             return false;
         }
 
-        boolean isJsonValid = true;
+        JsonReader reader = newJsonReader(json);
         try {
-            new Gson().fromJson(json, Object.class);
-        } catch (JsonSyntaxException e) {
-            isJsonValid = false;
+            if (isEmptyDocument(reader)) {
+                return true;
+            }
+            reader.skipValue();
+            return reader.peek() == JsonToken.END_DOCUMENT;
+        } catch (IOException e) {
+            return false;
         }
-        return isJsonValid;
     }
 
     /**
      * 
      * Pretty prints any json input.
      * 
+     * <p>
+     * The json is validated and formatted in one pass, token by token, without building its tree.
+     * If the input is not a valid json (see {@link #isJsonValid(String)}), it is returned as it is.
+     * </p>
+     * 
      * @param json
      * @return
      */
     public String prettyPrintJson(String json) {
-        if (!isJsonValid(json)) {
+        return prettyPrintJson(json, 0, 0, 0);
+    }
+
+    /**
+     * 
+     * Pretty prints any json input, but stops at the given limits so that the size of the result
+     * does not depend on the size of the input.
+     * 
+     * <p>
+     * The elements of an array beyond <code>maxArrayLength</code> are replaced by their number, the
+     * arrays and objects deeper than <code>maxDepth</code> by <code>[\u2026]</code> and
+     * <code>{\u2026}</code>. Once the result is longer than <code>maxLength</code> characters, the
+     * rest of the json is left out, and a string value longer than what is left of the limit is
+     * cut. An input which is not a valid json is cut after
+     * <code>maxLength</code> characters. A limit of 0 means no limit.
+     * </p>
+     * 
+     * @param json
+     * @param maxLength
+     * @param maxArrayLength
+     * @param maxDepth
+     * @return
+     */
+    public String prettyPrintJson(String json, int maxLength, int maxArrayLength, int maxDepth) {
+        if (json == null || json.equals("null") || json.isEmpty()) {
             return json;
         }
 
-        Gson gson = new GsonBuilder().setPrettyPrinting().create();
-        JsonParser jp = new JsonParser();
-        JsonElement je = jp.parse(json);
-        String returnvalue = gson.toJson(je);
-        return returnvalue;
+        JsonReader reader = newJsonReader(json);
+        JsonCopy copy = new JsonCopy(json.length(), maxLength, maxArrayLength, maxDepth);
+        try {
+            if (isEmptyDocument(reader)) {
+                copy.writer.nullValue();
+            } else {
+                copy.copyValue(reader);
+                if (!copy.truncated && reader.peek() != JsonToken.END_DOCUMENT) {
+                    return truncate(json, maxLength);
+                }
+            }
+        } catch (DuplicateNameException e) {
+            // only the last value of the name is kept, which requires the whole object
+            copy = new JsonCopy(json.length(), maxLength, maxArrayLength, maxDepth);
+            try {
+                copy.copyValue(newJsonReader(gson.toJson(jsonParser.parse(json))));
+            } catch (IOException err) {
+                return truncate(json, maxLength);
+            }
+        } catch (IOException e) {
+            return truncate(json, maxLength);
+        }
+        return copy.out.toString();
+    }
+
+    /**
+     * Cuts the given text after the given number of characters and appends the number of left out
+     * characters. A limit of 0 means no limit.
+     * 
+     * @param text
+     * @param maxLength
+     * @return
+     */
+    public String truncate(String text, int maxLength) {
+        if (text == null) {
+            return null;
+        }
+        if (maxLength <= 0 || text.length() <= maxLength) {
+            return text;
+        }
+        return text.substring(0, maxLength) + "\n"
+                + String.format(Locale.ENGLISH, MORE_CHARACTERS, text.length() - maxLength);
+    }
+
+    private JsonReader newJsonReader(String json) {
+        JsonReader reader = new JsonReader(new StringReader(json));
+        reader.setLenient(true);
+        return reader;
+    }
+
+    /**
+     * Returns true if the document only contains whitespaces, which is read as a null value.
+     */
+    private boolean isEmptyDocument(JsonReader reader) throws IOException {
+        try {
+            reader.peek();
+            return false;
+        } catch (EOFException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Copies a json value token by token into a pretty printing {@link JsonWriter}, within the given
+     * limits.
+     */
+    private static class JsonCopy {
+
+        private final StringWriter out;
+        private final JsonWriter writer;
+        private final int length;
+        private final int maxLength;
+        private final int maxArrayLength;
+        private final int maxDepth;
+        // the names of the open objects, null for the open arrays
+        private final Deque<Set<String>> containers = new ArrayDeque<Set<String>>();
+        private final Deque<Integer> arrayLengths = new ArrayDeque<Integer>();
+        private boolean afterName;
+        private boolean truncated;
+
+        JsonCopy(int length, int maxLength, int maxArrayLength, int maxDepth) {
+            this.length = length;
+            this.maxLength = maxLength;
+            this.maxArrayLength = maxArrayLength;
+            this.maxDepth = maxDepth;
+            int capacity = length + length / 2;
+            out = new StringWriter(maxLength > 0 ? Math.min(capacity, maxLength + 256) : capacity);
+            writer = new JsonWriter(out);
+            // same settings as the pretty printing Gson
+            writer.setLenient(true);
+            writer.setHtmlSafe(true);
+            writer.setSerializeNulls(false);
+            writer.setIndent(INDENT);
+        }
+
+        void copyValue(JsonReader reader) throws IOException {
+            do {
+                if (maxLength > 0 && !containers.isEmpty() && out.getBuffer().length() >= maxLength) {
+                    truncate();
+                    return;
+                }
+
+                JsonToken token = reader.peek();
+                if (isInArray() && token != JsonToken.END_ARRAY) {
+                    int elements = arrayLengths.pop() + 1;
+                    arrayLengths.push(elements);
+                    if (maxArrayLength > 0 && elements > maxArrayLength) {
+                        int more = 0;
+                        while (reader.hasNext()) {
+                            reader.skipValue();
+                            more++;
+                        }
+                        writer.value(String.format(Locale.ENGLISH, MORE_ELEMENTS, more));
+                        continue;
+                    }
+                }
+                afterName = false;
+
+                switch (token) {
+                    case BEGIN_ARRAY:
+                        if (isTooDeep()) {
+                            reader.skipValue();
+                            writer.value("[\u2026]");
+                        } else {
+                            reader.beginArray();
+                            writer.beginArray();
+                            containers.push(NO_NAMES);
+                            arrayLengths.push(0);
+                        }
+                        break;
+                    case END_ARRAY:
+                        reader.endArray();
+                        writer.endArray();
+                        containers.pop();
+                        arrayLengths.pop();
+                        break;
+                    case BEGIN_OBJECT:
+                        if (isTooDeep()) {
+                            reader.skipValue();
+                            writer.value("{\u2026}");
+                        } else {
+                            reader.beginObject();
+                            writer.beginObject();
+                            containers.push(new HashSet<String>());
+                        }
+                        break;
+                    case END_OBJECT:
+                        reader.endObject();
+                        writer.endObject();
+                        containers.pop();
+                        break;
+                    case NAME:
+                        String name = reader.nextName();
+                        if (!containers.peek().add(name)) {
+                            throw new DuplicateNameException();
+                        }
+                        writer.name(name);
+                        afterName = true;
+                        break;
+                    case STRING:
+                        writer.value(limitString(reader.nextString()));
+                        break;
+                    case NUMBER:
+                        // keeps the number as it is written
+                        writer.value(new RawNumber(reader.nextString()));
+                        break;
+                    case BOOLEAN:
+                        writer.value(reader.nextBoolean());
+                        break;
+                    case NULL:
+                        reader.nextNull();
+                        writer.nullValue();
+                        break;
+                    default:
+                        throw new EOFException("End of the json reached before the end of the value");
+                }
+            } while (!containers.isEmpty());
+        }
+
+        private boolean isInArray() {
+            return containers.peek() == NO_NAMES;
+        }
+
+        /**
+         * Cuts a string value which is longer than what is left of the length limit, so that a
+         * single value, e.g. a base64 encoded file, does not exceed the limit.
+         */
+        private String limitString(String value) {
+            if (maxLength <= 0) {
+                return value;
+            }
+            int remaining = Math.max(0, maxLength - out.getBuffer().length());
+            if (value.length() <= remaining) {
+                return value;
+            }
+            if (remaining > 0 && Character.isHighSurrogate(value.charAt(remaining - 1))) {
+                remaining--;
+            }
+            return value.substring(0, remaining)
+                    + String.format(Locale.ENGLISH, MORE_CHARACTERS, value.length() - remaining);
+        }
+
+        private boolean isTooDeep() {
+            return maxDepth > 0 && containers.size() >= maxDepth;
+        }
+
+        /**
+         * Ends the copy: replaces the rest of the json by a summary and closes the open arrays and
+         * objects.
+         */
+        private void truncate() throws IOException {
+            if (!isInArray() && !afterName) {
+                writer.name("\u2026");
+            }
+            writer.value(String.format(Locale.ENGLISH, TRUNCATED, length));
+            while (!containers.isEmpty()) {
+                if (containers.pop() == NO_NAMES) {
+                    writer.endArray();
+                } else {
+                    writer.endObject();
+                }
+            }
+            truncated = true;
+        }
+    }
+
+    /**
+     * Number written by a {@link JsonWriter} exactly as it has been read, e.g. <code>1.50</code>
+     * or <code>1e5</code>.
+     */
+    private static class RawNumber extends Number {
+
+        private static final long serialVersionUID = 1L;
+        private final String lexeme;
+
+        RawNumber(String lexeme) {
+            this.lexeme = lexeme;
+        }
+
+        @Override
+        public int intValue() {
+            return (int) doubleValue();
+        }
+
+        @Override
+        public long longValue() {
+            return (long) doubleValue();
+        }
+
+        @Override
+        public float floatValue() {
+            return (float) doubleValue();
+        }
+
+        @Override
+        public double doubleValue() {
+            return Double.parseDouble(lexeme);
+        }
+
+        @Override
+        public String toString() {
+            return lexeme;
+        }
+    }
+
+    /**
+     * Thrown if an object contains the same name twice.
+     */
+    private static class DuplicateNameException extends IOException {
+
+        private static final long serialVersionUID = 1L;
     }
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.devbliss.doctest.utils;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Compares two json trees structurally: the order of the fields of an object does not matter and
+ * the comparison stops at the first difference.
+ */
+class JsonComparator {
+
+    private static final int MAX_VALUE_LENGTH = 60;
+    private static final String ROOT = "$";
+
+    private final Gson gson;
+    private final ExcludedPaths excludedPaths;
+
+    JsonComparator(Gson gson, ExcludedPaths excludedPaths) {
+        this.gson = gson;
+        this.excludedPaths = excludedPaths;
+    }
+
+    /**
+     * Returns the first difference between the given trees, or null if they are equal.
+     */
+    String compare(JsonElement expected, JsonElement actual) {
+        return compare(expected, actual, ROOT, excludedPaths.getRoot());
+    }
+
+    /**
+     * Removes the excluded fields from the given tree.
+     */
+    void removeExcludedFields(JsonElement element) {
+        removeExcludedFields(element, excludedPaths.getRoot());
+    }
+
+    private String compare(JsonElement expected, JsonElement actual, String path,
+            ExcludedPaths.Position position) {
+        if (expected.isJsonObject() && actual.isJsonObject()) {
+            return compareObjects(expected.getAsJsonObject(), actual.getAsJsonObject(), path,
+                    position);
+        }
+        if (expected.isJsonArray() && actual.isJsonArray()) {
+            return compareArrays(expected.getAsJsonArray(), actual.getAsJsonArray(), path,
+                    position);
+        }
+        if (!expected.equals(actual)) {
+            return path + ": expected " + toString(expected) + " but was " + toString(actual);
+        }
+        return null;
+    }
+
+    private String compareObjects(JsonObject expected, JsonObject actual, String path,
+            ExcludedPaths.Position position) {
+        for (Map.Entry<String, JsonElement> field : expected.entrySet()) {
+            String name = field.getKey();
+            if (position.isExcluded(name)) {
+                continue;
+            }
+            JsonElement actualValue = actual.get(name);
+            if (actualValue == null) {
+                return path + "." + name + ": expected " + toString(field.getValue())
+                        + " but was missing";
+            }
+            String difference =
+                    compare(field.getValue(), actualValue, path + "." + name, position
+                            .getField(name));
+            if (difference != null) {
+                return difference;
+            }
+        }
+        for (Map.Entry<String, JsonElement> field : actual.entrySet()) {
+            String name = field.getKey();
+            if (!expected.has(name) && !position.isExcluded(name)) {
+                return path + "." + name + ": unexpected " + toString(field.getValue());
+            }
+        }
+        return null;
+    }
+
+    private String compareArrays(JsonArray expected, JsonArray actual, String path,
+            ExcludedPaths.Position position) {
+        if (expected.size() != actual.size()) {
+            return path + ": expected " + expected.size() + " elements but was " + actual.size();
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            String difference =
+                    compare(expected.get(i), actual.get(i), path + "[" + i + "]", position);
+            if (difference != null) {
+                return difference;
+            }
+        }
+        return null;
+    }
+
+    private void removeExcludedFields(JsonElement element, ExcludedPaths.Position position) {
+        if (element.isJsonObject()) {
+            Iterator<Map.Entry<String, JsonElement>> fields =
+                    element.getAsJsonObject().entrySet().iterator();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonElement> field = fields.next();
+                if (position.isExcluded(field.getKey())) {
+                    fields.remove();
+                } else {
+                    removeExcludedFields(field.getValue(), position.getField(field.getKey()));
+                }
+            }
+        } else if (element.isJsonArray()) {
+            for (JsonElement child : element.getAsJsonArray()) {
+                removeExcludedFields(child, position);
+            }
+        }
+    }
+
+    private String toString(JsonElement element) {
+        String json = gson.toJson(element);
+        if (json.length() > MAX_VALUE_LENGTH) {
+            return json.substring(0, MAX_VALUE_LENGTH) + "\u2026";
+        }
+        return json;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.devbliss.doctest.utils;
+
+/**
+ * Result of the comparison of two objects by {@link JSONHelper#compareJson}.
+ */
+public class JsonComparison {
+
+    private final String expectedJson;
+    private final String actualJson;
+    private final String difference;
+
+    /**
+     * @param expectedJson the pretty printed json of the expected object, without the excluded
+     *            fields
+     * @param difference the first difference found, or null if the objects are equal
+     */
+    public JsonComparison(String expectedJson, String difference) {
+        this(expectedJson, null, difference);
+    }
+
+    /**
+     * @param expectedJson the pretty printed json of the expected object, without the excluded
+     *            fields
+     * @param actualJson the pretty printed json of the actual object, without the excluded fields
+     * @param difference the first difference found, or null if the objects are equal
+     */
+    public JsonComparison(String expectedJson, String actualJson, String difference) {
+        this.expectedJson = expectedJson;
+        this.actualJson = actualJson;
+        this.difference = difference;
+    }
+
+    public boolean isEqual() {
+        return difference == null;
+    }
+
+    public String getExpectedJson() {
+        return expectedJson;
+    }
+
+    /**
+     * Returns the pretty printed json of the actual object if the objects differ, null otherwise.
+     * 
+     * @return
+     */
+    public String getActualJson() {
+        return actualJson;
+    }
+
+    /**
+     * Returns the first difference found, e.g. <code>$.items[2].name: expected "a" but was "b"</code>
+     * , or null if the objects are equal.
+     * 
+     * @return
+     */
+    public String getDifference() {
+        return difference;
+    }
+}
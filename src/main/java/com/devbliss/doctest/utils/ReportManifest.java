@@ -0,0 +1,204 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.devbliss.doctest.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Charsets;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * List of the reports generated in an output directory.
+ * <p>
+ * Each generated report adds one line to the hidden manifest file of its output directory. The
+ * index can then be built from the manifest instead of listing the whole directory. The outdated
+ * lines are removed each time the manifest is read. The file is locked while it is written or read,
+ * so that several JVMs (e.g. surefire forks) can share the same output directory.
+ * </p>
+ */
+public class ReportManifest {
+
+    public static final String MANIFEST_FILE = ".doctest-manifest";
+
+    private final Gson gson = new Gson();
+
+    /**
+     * Entry of the manifest describing one generated report.
+     */
+    public static class Entry {
+
+        private final String fileName;
+        private final String title;
+        private final int items;
+        private final int requests;
+        private final long timestamp;
+
+        public Entry(String fileName, String title, int items, int requests, long timestamp) {
+            this.fileName = fileName;
+            this.title = title;
+            this.items = items;
+            this.requests = requests;
+            this.timestamp = timestamp;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public int getItems() {
+            return items;
+        }
+
+        public int getRequests() {
+            return requests;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+    }
+
+    /**
+     * Appends the given entry to the manifest of the given directory.
+     *
+     * @param directory
+     * @param entry
+     * @throws IOException
+     */
+    public void append(String directory, Entry entry) throws IOException {
+        new File(directory).mkdirs();
+        byte[] line = (gson.toJson(entry) + "\n").getBytes(Charsets.UTF_8);
+        RandomAccessFile file = new RandomAccessFile(getManifestFile(directory), "rw");
+        try {
+            FileChannel channel = file.getChannel();
+            FileLock lock = channel.lock();
+            try {
+                channel.position(channel.size());
+                channel.write(ByteBuffer.wrap(line));
+            } finally {
+                lock.release();
+            }
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Reads the manifest of the given directory. If a report has been generated several times,
+     * only its last entry is returned, and the entries of the reports which do not exist anymore
+     * are dropped. The entries are sorted by the time their report has been generated for the
+     * first time.
+     * <p>
+     * The manifest is compacted while it is read: if it contains outdated entries, it is rewritten
+     * with the returned entries only, so that it does not grow with each test run.
+     * </p>
+     *
+     * @param directory
+     * @return the entries of the manifest, or an empty list if there is no manifest
+     * @throws IOException
+     */
+    public List<Entry> read(String directory) throws IOException {
+        File manifest = getManifestFile(directory);
+        if (!manifest.exists()) {
+            return new ArrayList<Entry>();
+        }
+
+        RandomAccessFile file = new RandomAccessFile(manifest, "rw");
+        try {
+            FileChannel channel = file.getChannel();
+            FileLock lock = channel.lock();
+            try {
+                ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // read the whole manifest
+                }
+                buffer.flip();
+                String[] lines = Charsets.UTF_8.decode(buffer).toString().split("\n");
+
+                Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+                for (String line : lines) {
+                    Entry entry = parse(line);
+                    if (entry != null && entry.getFileName() != null) {
+                        entries.put(entry.getFileName(), entry);
+                    }
+                }
+                List<Entry> result = new ArrayList<Entry>();
+                for (Entry entry : entries.values()) {
+                    if (new File(directory, entry.getFileName()).exists()) {
+                        result.add(entry);
+                    }
+                }
+
+                if (result.size() < lines.length) {
+                    compact(channel, result);
+                }
+                return result;
+            } finally {
+                lock.release();
+            }
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Replaces the content of the locked manifest by the given entries.
+     */
+    private void compact(FileChannel channel, List<Entry> entries) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (Entry entry : entries) {
+            content.append(gson.toJson(entry)).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(content.toString().getBytes(Charsets.UTF_8));
+        channel.position(0);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.truncate(buffer.limit());
+    }
+
+    /**
+     * Parses one line of the manifest. Lines which can not be parsed (e.g. written by a JVM which
+     * has been killed) are ignored.
+     */
+    private Entry parse(String line) {
+        if (line.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return gson.fromJson(line, Entry.class);
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    private File getManifestFile(String directory) {
+        return new File(directory, MANIFEST_FILE);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.devbliss.doctest.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor of the asynchronous requests of the tests, if the {@link com.devbliss.doctest.Configuration}
+ * does not set another one.
+ * <p>
+ * If the runtime supports virtual threads (Java 21 and later), each request runs in its own virtual
+ * thread. Otherwise, the requests run in a cached pool of daemon threads.
+ * </p>
+ */
+public final class RequestExecutors {
+
+    private RequestExecutors() {}
+
+    /**
+     * Holds the default executor, which is only created when the first asynchronous request is
+     * made.
+     */
+    private static class Holder {
+
+        static final ExecutorService DEFAULT = createDefault();
+    }
+
+    public static ExecutorService getDefault() {
+        return Holder.DEFAULT;
+    }
+
+    static ExecutorService createDefault() {
+        try {
+            Method virtualThreads = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtualThreads.invoke(null);
+        } catch (Exception e) {
+            return Executors.newCachedThreadPool(new RequestThreadFactory());
+        }
+    }
+
+    private static class RequestThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "doctest-request-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
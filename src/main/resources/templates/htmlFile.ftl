@@ -17,8 +17,18 @@
 <html>
 	<head>
 		<meta charset="utf-8"> 
+		<#if cssFile??>
+		<link rel="stylesheet" type="text/css" href="${cssFile}">
+		<#else>
 		<style>${css}</style>
+		</#if>
+		<#if jsFiles??>
+		<#list jsFiles as jsFile>
+        <script type="text/javascript" src="${jsFile}"></script>
+		</#list>
+		<#else>
         <script type="text/javascript">${jsCode}</script>
+		</#if>
         <title>DocTest for class ${name}</title>
     </head>
 	<body>
@@ -32,7 +42,7 @@
             		<h3>Introduction:</h3>
             		<div>${introduction}</div>
             	</#if>
-            	${items}
+            	<#if items??>${items}<#else><@streamedItems/></#if>
             </div>
         </div>
     <body>
@@ -17,7 +17,11 @@
 <html>
 	<meta http-equiv="Content-Type" content="text/html; charset=UTF-8"/>
 	<head>
+		<#if cssFile??>
+		<link rel="stylesheet" type="text/css" href="${cssFile}">
+		<#else>
 		<style>${css}</style>
+		</#if>
         <title>Doctests - index</title>
     </head>
 	<body>
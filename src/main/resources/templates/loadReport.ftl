@@ -0,0 +1,70 @@
+<#-- 
+  Copyright 2013, devbliss GmbH
+  
+  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+  in compliance with the License. You may obtain a copy of the License at
+  
+  http://www.apache.org/licenses/LICENSE-2.0
+  
+  Unless required by applicable law or agreed to in writing, software distributed under the License
+  is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+  or implied. See the License for the specific language governing permissions and limitations under
+  the License.
+ #-->
+<div class="box">
+	<span class="headline">Load</span>
+	<ul>
+		<li>Workers: ${report.profile.workers}</li>
+		<li>Warm-up: ${report.profile.warmupIterations} iterations per worker</li>
+		<#if report.profile.duration &gt; 0>
+		<li>Measured: ${report.duration} ms</li>
+		<#else>
+		<li>Measured: ${report.profile.iterations} iterations per worker in ${report.duration} ms</li>
+		</#if>
+		<li>Requests: ${report.requests}</li>
+		<li>Throughput: ${report.throughput?string("0.0")} requests/s</li>
+		<li>Errors: ${report.errors} (${report.errorRate?string("0.00")} %)</li>
+		<li>The percentiles are approximated within 3 %.</li>
+	</ul>
+	<table class="load">
+		<tr>
+			<th>Endpoint</th>
+			<th>Requests</th>
+			<th>Requests/s</th>
+			<th>Errors</th>
+			<th>Mean</th>
+			<th>&asymp; p50</th>
+			<th>&asymp; p95</th>
+			<th>&asymp; p99</th>
+			<th>Max</th>
+			<th></th>
+		</tr>
+		<#list report.endpoints as endpoint>
+		<tr>
+			<td>${endpoint.endpoint?html}</td>
+			<td>${endpoint.requests}</td>
+			<td>${endpoint.throughput?string("0.0")}</td>
+			<td>${endpoint.errorRate?string("0.00")} %</td>
+			<td>${endpoint.mean?string("0.0")} ms</td>
+			<td>${endpoint.p50?string("0.0")} ms</td>
+			<td>${endpoint.p95?string("0.0")} ms</td>
+			<td>${endpoint.p99?string("0.0")} ms</td>
+			<td>${endpoint.max?string("0.0")} ms</td>
+			<td><button type="button" onclick="toggle(${id}_${endpoint_index})" class="moreOrLess">See/hide histogram</button></td>
+		</tr>
+		<tr>
+			<td colspan="10">
+				<table id=${id}_${endpoint_index} class="histogram" style="display:none">
+					<#list endpoint.buckets as bucket>
+					<tr>
+						<td>${bucket.label?html}</td>
+						<td>${bucket.count}</td>
+						<td><div class="bar" style="width: ${bucket.share?string("0.#")?replace(",", ".")}%"></div></td>
+					</tr>
+					</#list>
+				</table>
+			</td>
+		</tr>
+		</#list>
+	</table>
+</div>
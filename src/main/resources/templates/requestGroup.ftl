@@ -0,0 +1,34 @@
+<#-- 
+  Copyright 2013, devbliss GmbH
+  
+  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+  in compliance with the License. You may obtain a copy of the License at
+  
+  http://www.apache.org/licenses/LICENSE-2.0
+  
+  Unless required by applicable law or agreed to in writing, software distributed under the License
+  is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+  or implied. See the License for the specific language governing permissions and limitations under
+  the License.
+ #-->
+<div class="box">
+	<span class="headline">Requests</span>
+	<button type="button" onclick="toggle(${id})" class="moreOrLess">See/hide the ${rows?size} requests</button>
+	<table id=${id} class="requestGroup">
+		<#list rows as row>
+		<tr>
+			<td>${row.http!""}</td>
+			<td>${row.uri!""}</td>
+			<td>${row.responseCode!"-"}</td>
+			<td><button type="button" onclick="toggle(${row.id})" class="moreOrLess">See/hide details</button></td>
+		</tr>
+		<tr>
+			<td colspan="4">
+				<div id=${row.id} style="display:none">
+					${row.details}
+				</div>
+			</td>
+		</tr>
+		</#list>
+	</table>
+</div>
@@ -0,0 +1,34 @@
+<#-- 
+  Copyright 2013, devbliss GmbH
+  
+  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+  in compliance with the License. You may obtain a copy of the License at
+  
+  http://www.apache.org/licenses/LICENSE-2.0
+  
+  Unless required by applicable law or agreed to in writing, software distributed under the License
+  is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+  or implied. See the License for the specific language governing permissions and limitations under
+  the License.
+ #-->
+<div class="box">
+	<span class="headline">Requests</span>
+	<table class="requestSummary">
+		<tr>
+			<th>Endpoint</th>
+			<th>Requests</th>
+			<th>p50</th>
+			<th>p95</th>
+			<th>Max</th>
+		</tr>
+		<#list entries as entry>
+		<tr>
+			<td>${entry.endpoint?html}</td>
+			<td>${entry.requests}</td>
+			<td>${entry.p50?string("0.0")} ms</td>
+			<td>${entry.p95?string("0.0")} ms</td>
+			<td>${entry.max?string("0.0")} ms</td>
+		</tr>
+		</#list>
+	</table>
+</div>
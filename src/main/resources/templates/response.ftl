@@ -15,6 +15,13 @@
 	<span class="headline">Response</span>
 	<ul>
 		<li>ResponseCode: ${responseCode}</li>
+		<#if metrics??>
+			<li>Time: ${metrics.totalTime?string("0.0")} ms<#if metrics.timeToFirstByte??> (first byte after ${metrics.timeToFirstByte?string("0.0")} ms)</#if></li>
+			<li>Size: ${metrics.requestBytes} bytes sent, ${metrics.responseBytes} bytes received</li>
+			<#if metrics.connectionReused??>
+			<li>Connection: <#if metrics.connectionReused>reused<#else>new</#if></li>
+			</#if>
+		</#if>
 
 		<#if headers?has_content>
 			<li>Headers
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.devbliss.doctest;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.RunWith;
+import org.junit.runners.model.Statement;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.devbliss.doctest.machine.DocTestMachine;
+
+/**
+ * Unit tests for the {@link DocSessionRule}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class DocSessionRuleUnitTest {
+
+    @Mock
+    private DocTestMachine docTestMachine;
+    @Mock
+    private Statement statement;
+
+    private DocSessionRule rule;
+    private Description description;
+
+    @Before
+    public void setUp() {
+        rule = new DocSessionRule(docTestMachine);
+        description = Description.createSuiteDescription(DocSessionRuleUnitTest.class);
+    }
+
+    @Test
+    public void beginTheReportBeforeTheClassAndReleaseItAfterwards() throws Throwable {
+        rule.apply(statement, description).evaluate();
+
+        InOrder inOrder = inOrder(docTestMachine, statement);
+        inOrder.verify(docTestMachine).beginDoctest(DocSessionRuleUnitTest.class, null, null);
+        inOrder.verify(statement).evaluate();
+        inOrder.verify(docTestMachine).prepareDocTest();
+    }
+
+    @Test
+    public void releaseTheReportIfTheClassFails() throws Throwable {
+        IllegalStateException exception = new IllegalStateException();
+        doThrow(exception).when(statement).evaluate();
+
+        try {
+            rule.apply(statement, description).evaluate();
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e == exception);
+        }
+        verify(docTestMachine).prepareDocTest();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.devbliss.doctest;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.devbliss.doctest.renderer.FinishableReportRenderer;
+import com.devbliss.doctest.renderer.ReportRenderer;
+
+/**
+ * Unit tests for the {@link DocTestRunListener}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class DocTestRunListenerUnitTest {
+
+    @Mock
+    private FinishableReportRenderer reportRenderer;
+
+    private DocTestRunListener listener;
+
+    @Before
+    public void setUp() {
+        listener = new DocTestRunListener(reportRenderer);
+    }
+
+    @Test
+    public void deferTheReportsWhenTheRunStarts() throws Exception {
+        listener.testRunStarted(Description.EMPTY);
+        verify(reportRenderer).deferUntilFinish();
+        verifyNoMoreInteractions(reportRenderer);
+    }
+
+    @Test
+    public void renderTheReportsWhenTheRunIsFinished() throws Exception {
+        listener.testRunFinished(new Result());
+        verify(reportRenderer).finish();
+    }
+
+    @Test
+    public void ignoreTheRenderersWhichCanNotBeFinished() throws Exception {
+        ReportRenderer renderer = mock(ReportRenderer.class);
+        listener = new DocTestRunListener(renderer);
+        listener.testRunStarted(Description.EMPTY);
+        listener.testRunFinished(new Result());
+        verifyZeroInteractions(renderer);
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.devbliss.doctest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import de.devbliss.apitester.ApiTest;
+import de.devbliss.apitester.TestState;
+
+/**
+ * Unit tests for the {@link DocTest}.
+ */
+public class DocTestUnitTest {
+
+    private static class MyDocTest extends DocTest {
+
+        @Override
+        protected String getFileName() {
+            return "myDocTest";
+        }
+    }
+
+    private static class OtherDocTest extends DocTest {
+
+        @Override
+        protected String getFileName() {
+            return "otherDocTest";
+        }
+    }
+
+    @After
+    public void tearDown() {
+        DocTest.setApi(null);
+        DocTest.releaseApi(MyDocTest.class);
+        DocTest.releaseApi(OtherDocTest.class);
+    }
+
+    @Test
+    public void eachThreadHasItsOwnCookies() throws Exception {
+        MyDocTest docTest = new MyDocTest();
+        docTest.addCookie("name", "value");
+
+        final AtomicReference<String> otherValue = new AtomicReference<String>("not read");
+        Thread otherThread = new Thread() {
+            @Override
+            public void run() {
+                otherValue.set(new MyDocTest().getCookieValue("name"));
+            }
+        };
+        otherThread.start();
+        otherThread.join();
+
+        assertNull(otherValue.get());
+        assertEquals("value", new MyDocTest().getCookieValue("name"));
+    }
+
+    @Test
+    public void theApiIsOnlySetForTheCurrentThread() throws Exception {
+        final ApiTest api = mock(ApiTest.class);
+        TestState testState = mock(TestState.class);
+        when(api.getTestState()).thenReturn(testState);
+
+        Thread otherThread = new Thread() {
+            @Override
+            public void run() {
+                DocTest.setThreadApi(api);
+                new MyDocTest().clearCookies();
+            }
+        };
+        otherThread.start();
+        otherThread.join();
+        new MyDocTest().clearCookies();
+
+        verify(testState).clearCookies();
+    }
+
+    @Test
+    public void theApiIsSetForAllTheThreads() throws Exception {
+        ApiTest api = mock(ApiTest.class);
+        TestState testState = mock(TestState.class);
+        when(api.getTestState()).thenReturn(testState);
+        DocTest.setApi(api);
+
+        Thread otherThread = new Thread() {
+            @Override
+            public void run() {
+                new MyDocTest().clearCookies();
+            }
+        };
+        otherThread.start();
+        otherThread.join();
+        new MyDocTest().clearCookies();
+
+        verify(testState, times(2)).clearCookies();
+    }
+
+    @Test
+    public void eachTestClassHasItsOwnCookiesInTheSameThread() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<String> otherValue = executor.submit(new Callable<String>() {
+            public String call() {
+                new MyDocTest().addCookie("name", "value");
+                return new OtherDocTest().getCookieValue("name");
+            }
+        });
+
+        assertNull(otherValue.get());
+        executor.shutdown();
+    }
+
+    @Test
+    public void theCookiesAreDroppedOnceTheTestClassHasRun() throws Throwable {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        Statement testClass = new Statement() {
+            @Override
+            public void evaluate() throws Exception {
+                executor.submit(new Callable<Void>() {
+                    public Void call() {
+                        new MyDocTest().addCookie("name", "value");
+                        return null;
+                    }
+                }).get();
+            }
+        };
+
+        DocTest.API_SESSION.apply(testClass, Description.createSuiteDescription(MyDocTest.class))
+                .evaluate();
+        Future<String> value = executor.submit(new Callable<String>() {
+            public String call() {
+                return new MyDocTest().getCookieValue("name");
+            }
+        });
+
+        assertNull(value.get());
+        executor.shutdown();
+    }
+}
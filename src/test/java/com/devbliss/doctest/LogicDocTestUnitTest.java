@@ -15,40 +15,65 @@
 package com.devbliss.doctest;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
+import static org.mockito.Matchers.isNull;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.net.URI;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.junit.Before;
+import org.junit.ComparisonFailure;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatcher;
+import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import com.devbliss.doctest.httpfactory.JsonPayload;
 import com.devbliss.doctest.httpfactory.PostUploadWithoutRedirectImpl;
+import com.devbliss.doctest.httpfactory.RequestMetrics;
+import com.devbliss.doctest.load.LoadProfile;
+import com.devbliss.doctest.load.LoadRunner;
 import com.devbliss.doctest.machine.DocTestMachine;
 import com.devbliss.doctest.utils.FileHelper;
 import com.devbliss.doctest.utils.JSONHelper;
+import com.devbliss.doctest.utils.JsonComparison;
 
 import de.devbliss.apitester.ApiRequest;
 import de.devbliss.apitester.ApiResponse;
 import de.devbliss.apitester.ApiTest;
+import de.devbliss.apitester.ApiTest.HTTP_REQUEST;
 import de.devbliss.apitester.Context;
 import de.devbliss.apitester.Cookie;
 import de.devbliss.apitester.TestState;
@@ -88,6 +113,10 @@ public class LogicDocTestUnitTest {
     private TestState testState;
     @Mock
     private FileHelper fileHelper;
+    @Mock
+    private LoadRunner loadRunner;
+    @Captor
+    private ArgumentCaptor<List<BatchRequest>> requestsCaptor;
 
     private LogicDocTest docTest;
     private URI uri;
@@ -129,7 +158,7 @@ public class LogicDocTestUnitTest {
 
     @Test
     public void finishDocTest() throws Exception {
-        LogicDocTest.finishDocTest();
+        LogicDocTest.finishDocTest(docTestMachine);
         verify(docTestMachine).endDocTest();
         verify(docTestMachine).prepareDocTest();
     }
@@ -139,7 +168,195 @@ public class LogicDocTestUnitTest {
         when(apiTest.get(uri)).thenReturn(context);
         docTest.makeGetRequest(uri);
         verify(docTestMachine).sayRequest(request, null, myHeadersToShow, myCookiesToShow);
-        verify(docTestMachine).sayResponse(response, myHeadersToShow);
+        verify(docTestMachine).sayResponse(eq(response), isA(RequestMetrics.class),
+                eq(myHeadersToShow));
+    }
+
+    @Test
+    public void makeGetRequestAsync() throws Exception {
+        DocTestMachine requestMachine = mock(DocTestMachine.class);
+        when(docTestMachine.sayLater()).thenReturn(requestMachine);
+        when(apiTest.get(uri)).thenReturn(context);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        docTest.getConfiguration().setRequestExecutor(executor);
+
+        Future<ApiResponse> future = docTest.makeGetRequestAsync(uri);
+
+        assertEquals(response, future.get());
+        verify(requestMachine).sayRequest(request, null, myHeadersToShow, myCookiesToShow);
+        verify(requestMachine).sayResponse(eq(response), isA(RequestMetrics.class),
+                eq(myHeadersToShow));
+        verify(requestMachine).endDocTest();
+        verify(docTestMachine, never()).sayResponse(eq(response), isA(RequestMetrics.class),
+                eq(myHeadersToShow));
+        executor.shutdown();
+    }
+
+    @Test
+    public void makePostRequestAsyncWhichFails() throws Exception {
+        DocTestMachine requestMachine = mock(DocTestMachine.class);
+        when(docTestMachine.sayLater()).thenReturn(requestMachine);
+        IOException exception = new IOException();
+        when(apiTest.post(eq(uri), argThat(isPayload(OBJECT)))).thenThrow(exception);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        docTest.getConfiguration().setRequestExecutor(executor);
+
+        Future<ApiResponse> future = docTest.makePostRequestAsync(uri, obj);
+
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals(exception, e.getCause());
+        }
+        verify(requestMachine).endDocTest();
+        executor.shutdown();
+    }
+
+    @Test
+    public void makeGetRequestAsyncWhichIsRejected() throws Exception {
+        DocTestMachine requestMachine = mock(DocTestMachine.class);
+        when(docTestMachine.sayLater()).thenReturn(requestMachine);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        docTest.getConfiguration().setRequestExecutor(executor);
+
+        try {
+            docTest.makeGetRequestAsync(uri);
+            fail();
+        } catch (RejectedExecutionException e) {
+            verify(requestMachine).endDocTest();
+        }
+    }
+
+    @Test
+    public void makeRequests() throws Exception {
+        DocTestMachine group = mock(DocTestMachine.class);
+        when(docTestMachine.sayGroup()).thenReturn(group);
+        when(apiTest.get(uri)).thenReturn(context);
+        when(apiTest.post(eq(uri), argThat(isPayload(OBJECT)))).thenReturn(context);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        docTest.getConfiguration().setRequestExecutor(executor);
+
+        List<ApiResponse> responses =
+                docTest.makeRequests(BatchRequest.get(uri), BatchRequest.post(uri, obj));
+
+        assertEquals(Arrays.asList(response, response), responses);
+        InOrder inOrder = inOrder(group);
+        inOrder.verify(group).sayRequest(request, null, myHeadersToShow, myCookiesToShow);
+        inOrder.verify(group).sayResponse(eq(response), isA(RequestMetrics.class),
+                eq(myHeadersToShow));
+        inOrder.verify(group).sayRequest(request, OBJECT, myHeadersToShow, myCookiesToShow);
+        inOrder.verify(group).sayResponse(eq(response), isA(RequestMetrics.class),
+                eq(myHeadersToShow));
+        inOrder.verify(group).endDocTest();
+        verify(docTestMachine, never()).sayResponse(eq(response), isA(RequestMetrics.class),
+                eq(myHeadersToShow));
+        executor.shutdown();
+    }
+
+    @Test
+    public void makeRequestsWhichFail() throws Exception {
+        DocTestMachine group = mock(DocTestMachine.class);
+        when(docTestMachine.sayGroup()).thenReturn(group);
+        IOException exception = new IOException();
+        when(apiTest.delete(uri, null)).thenThrow(exception);
+        when(apiTest.get(uri)).thenReturn(context);
+        docTest.getConfiguration().setBatchConcurrency(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        docTest.getConfiguration().setRequestExecutor(executor);
+
+        try {
+            docTest.makeRequests(BatchRequest.delete(uri), BatchRequest.get(uri));
+            fail();
+        } catch (IOException e) {
+            assertEquals(exception, e);
+        }
+        verify(group).sayRequest(request, null, myHeadersToShow, myCookiesToShow);
+        verify(group).sayResponse(eq(response), isA(RequestMetrics.class),
+                eq(myHeadersToShow));
+        verify(group).endDocTest();
+        executor.shutdown();
+    }
+
+    @Test
+    public void replayRequests() throws Exception {
+        docTest.getConfiguration().setRecordRequests(true);
+        when(apiTest.get(uri)).thenReturn(context);
+        when(apiTest.post(eq(uri), argThat(isPayload(OBJECT)))).thenReturn(context);
+        docTest.makeGetRequest(uri);
+        docTest.makePostRequestSilent(uri, obj);
+        LoadProfile profile = new LoadProfile();
+
+        docTest.replayRequests("load", profile);
+
+        verify(loadRunner).run(eq("load"), requestsCaptor.capture(), eq(profile));
+        List<BatchRequest> requests = requestsCaptor.getValue();
+        assertEquals(2, requests.size());
+        assertEquals(HTTP_REQUEST.GET, requests.get(0).getMethod());
+        assertEquals(HTTP_REQUEST.POST, requests.get(1).getMethod());
+        assertEquals(uri, requests.get(1).getUri());
+        assertEquals(OBJECT, ((JsonPayload) requests.get(1).getPayload()).getJson());
+    }
+
+    @Test
+    public void replayRequestsInTheOrderOfTheCalls() throws Exception {
+        docTest.getConfiguration().setRecordRequests(true);
+        when(docTestMachine.sayLater()).thenReturn(mock(DocTestMachine.class));
+        when(docTestMachine.sayGroup()).thenReturn(mock(DocTestMachine.class));
+        when(apiTest.delete(uri, null)).thenReturn(context);
+        when(apiTest.get(uri)).thenReturn(context);
+        when(apiTest.post(eq(uri), argThat(isPayload(OBJECT)))).thenReturn(context);
+        final CountDownLatch batchDone = new CountDownLatch(1);
+        ExecutorService asyncExecutor = Executors.newSingleThreadExecutor();
+        asyncExecutor.submit(new Callable<Void>() {
+            public Void call() throws Exception {
+                batchDone.await();
+                return null;
+            }
+        });
+        docTest.getConfiguration().setRequestExecutor(asyncExecutor);
+        Future<ApiResponse> future = docTest.makeDeleteRequestAsync(uri);
+        ExecutorService batchExecutor = Executors.newFixedThreadPool(2);
+        docTest.getConfiguration().setRequestExecutor(batchExecutor);
+        docTest.makeRequests(BatchRequest.get(uri), BatchRequest.post(uri, obj));
+        batchDone.countDown();
+        future.get();
+
+        docTest.replayRequests("load", new LoadProfile());
+
+        verify(loadRunner).run(eq("load"), requestsCaptor.capture(), any(LoadProfile.class));
+        List<BatchRequest> requests = requestsCaptor.getValue();
+        assertEquals(3, requests.size());
+        assertEquals(HTTP_REQUEST.DELETE, requests.get(0).getMethod());
+        assertEquals(HTTP_REQUEST.GET, requests.get(1).getMethod());
+        assertEquals(HTTP_REQUEST.POST, requests.get(2).getMethod());
+        assertEquals(OBJECT, ((JsonPayload) requests.get(2).getPayload()).getJson());
+        asyncExecutor.shutdown();
+        batchExecutor.shutdown();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void replayRequestsWithoutALoadRunner() throws Exception {
+        docTest = new LogicDocTest(docTestMachine, apiTest, jsonHelper, fileHelper,
+                new Configuration()) {
+
+            @Override
+            protected String getFileName() {
+                return FILE_NAME;
+            }
+        };
+        docTest.getConfiguration().setRecordRequests(true);
+
+        docTest.replayRequests("load", new LoadProfile());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void replayRequestsWhichAreNotRecorded() throws Exception {
+        when(apiTest.get(uri)).thenReturn(context);
+        docTest.makeGetRequest(uri);
+
+        docTest.replayRequests("load", new LoadProfile());
     }
 
     @Test
@@ -147,15 +364,17 @@ public class LogicDocTestUnitTest {
         when(apiTest.delete(uri, null)).thenReturn(context);
         docTest.makeDeleteRequest(uri);
         verify(docTestMachine).sayRequest(request, NULL, myHeadersToShow, myCookiesToShow);
-        verify(docTestMachine).sayResponse(response, myHeadersToShow);
+        verify(docTestMachine).sayResponse(eq(response), isA(RequestMetrics.class),
+                eq(myHeadersToShow));
     }
 
     @Test
     public void makeDeleteRequestWithBody() throws Exception {
-        when(apiTest.delete(uri, obj)).thenReturn(context);
+        when(apiTest.delete(eq(uri), argThat(isPayload(OBJECT)))).thenReturn(context);
         docTest.makeDeleteRequest(uri, obj);
         verify(docTestMachine).sayRequest(request, OBJECT, myHeadersToShow, myCookiesToShow);
-        verify(docTestMachine).sayResponse(response, myHeadersToShow);
+        verify(docTestMachine).sayResponse(eq(response), isA(RequestMetrics.class),
+                eq(myHeadersToShow));
     }
 
     @Test
@@ -163,51 +382,69 @@ public class LogicDocTestUnitTest {
         when(apiTest.post(uri, null)).thenReturn(context);
         docTest.makePostRequest(uri);
         verify(docTestMachine).sayRequest(request, NULL, myHeadersToShow, myCookiesToShow);
-        verify(docTestMachine).sayResponse(response, myHeadersToShow);
+        verify(docTestMachine).sayResponse(eq(response), isA(RequestMetrics.class),
+                eq(myHeadersToShow));
     }
 
     @Test
     public void makePostRequestWithBody() throws Exception {
-        when(apiTest.post(uri, obj)).thenReturn(context);
+        when(apiTest.post(eq(uri), argThat(isPayload(OBJECT)))).thenReturn(context);
         docTest.makePostRequest(uri, obj);
         verify(docTestMachine).sayRequest(request, OBJECT, myHeadersToShow, myCookiesToShow);
-        verify(docTestMachine).sayResponse(response, myHeadersToShow);
+        verify(docTestMachine).sayResponse(eq(response), isA(RequestMetrics.class),
+                eq(myHeadersToShow));
     }
 
     @Test
     public void makePostUploadRequest() throws Exception {
         when(apiTest.post(eq(uri), eq(null), isA(PostUploadWithoutRedirectImpl.class))).thenReturn(
                 context);
-        when(fileHelper.readFile(fileToUpload)).thenReturn("fileBody");
+        when(fileHelper.readFilePreview(eq(fileToUpload), anyLong())).thenReturn("fileBody");
         docTest.makePostUploadRequest(uri, fileToUpload, "paramName");
 
         verify(docTestMachine).sayUploadRequest(request, "file.txt", "fileBody",
                 fileToUpload.length(), "text/plain", myHeadersToShow, myCookiesToShow);
-        verify(docTestMachine).sayResponse(response, myHeadersToShow);
+        verify(docTestMachine).sayResponse(eq(response), isA(RequestMetrics.class),
+                eq(myHeadersToShow));
     }
 
     @Test(expected = FileNotFoundException.class)
     public void makePostUploadRequestFileNotFound() throws Exception {
         when(apiTest.post(eq(uri), eq(null), any(PostUploadWithoutRedirectImpl.class))).thenReturn(
                 context);
-        doThrow(new FileNotFoundException()).when(fileHelper).readFile(fileToUpload);
+        doThrow(new FileNotFoundException()).when(fileHelper).readFilePreview(eq(fileToUpload),
+                anyLong());
         docTest.makePostUploadRequest(uri, fileToUpload, "paramName");
     }
 
+    @Test
+    public void makePostUploadRequestDoesNotReadBinaryFile() throws Exception {
+        File picture = new File("src/test/resources/picture.png");
+        when(apiTest.post(eq(uri), eq(null), isA(PostUploadWithoutRedirectImpl.class))).thenReturn(
+                context);
+        docTest.makePostUploadRequest(uri, picture, "paramName");
+
+        verify(fileHelper, never()).readFilePreview(any(File.class), anyLong());
+        verify(docTestMachine).sayUploadRequest(eq(request), eq("picture.png"), (String) isNull(),
+                eq(picture.length()), anyString(), eq(myHeadersToShow), eq(myCookiesToShow));
+    }
+
     @Test
     public void makePutRequest() throws Exception {
         when(apiTest.put(uri, null)).thenReturn(context);
         docTest.makePutRequest(uri);
         verify(docTestMachine).sayRequest(request, NULL, myHeadersToShow, myCookiesToShow);
-        verify(docTestMachine).sayResponse(response, myHeadersToShow);
+        verify(docTestMachine).sayResponse(eq(response), isA(RequestMetrics.class),
+                eq(myHeadersToShow));
     }
 
     @Test
     public void makePutRequestWithBody() throws Exception {
-        when(apiTest.put(uri, obj)).thenReturn(context);
+        when(apiTest.put(eq(uri), argThat(isPayload(OBJECT)))).thenReturn(context);
         docTest.makePutRequest(uri, obj);
         verify(docTestMachine).sayRequest(request, OBJECT, myHeadersToShow, myCookiesToShow);
-        verify(docTestMachine).sayResponse(response, myHeadersToShow);
+        verify(docTestMachine).sayResponse(eq(response), isA(RequestMetrics.class),
+                eq(myHeadersToShow));
     }
 
     @Test
@@ -314,25 +551,28 @@ public class LogicDocTestUnitTest {
     public void assertEqualsJsonObjects() throws Exception {
         Object object1 = new Object();
         Object object2 = new Object();
-        when(jsonHelper.toJson(object1, true)).thenReturn(OBJECT);
-        when(jsonHelper.toJson(object2, true)).thenReturn(OBJECT);
+        when(jsonHelper.compareJson(object1, object2, null)).thenReturn(
+                new JsonComparison(OBJECT, null));
 
         docTest.assertJsonEqualsAndSay(object1, object2);
-        verify(docTestMachine).sayVerify(anyString());
+        verify(docTestMachine).sayVerify(OBJECT);
     }
 
     @Test
     public void assertStringAreNotEqualsJsonObjects() throws Exception {
         Object object1 = new Object();
         Object object2 = new Object();
-        when(jsonHelper.toJson(object1, true)).thenReturn(OBJECT);
-        when(jsonHelper.toJson(object2, true)).thenReturn(OBJECT2);
+        when(jsonHelper.compareJson(object1, object2, null)).thenReturn(
+                new JsonComparison("{\"a\": 1}", "{\"a\": 2}", "$.a: expected 1 but was 2"));
 
         try {
             docTest.assertJsonEqualsAndSay(object1, object2);
             fail();
-        } catch (AssertionError e) {
-            verify(docTestMachine, never()).sayVerify(anyString());
+        } catch (ComparisonFailure e) {
+            assertTrue(e.getMessage().startsWith("$.a: expected 1 but was 2"));
+            assertEquals("{\"a\": 1}", e.getExpected());
+            assertEquals("{\"a\": 2}", e.getActual());
+            verify(docTestMachine).sayVerify("$.a: expected 1 but was 2");
         } catch (Exception e) {
             fail();
         }
@@ -343,16 +583,15 @@ public class LogicDocTestUnitTest {
     public void assertStringAreNotEqualsJsonObjectsExcluded() throws Exception {
         Object object1 = new Object();
         Object object2 = new Object();
-        when(jsonHelper.toJsonAndSkipCertainFields(eq(object1), anyList(), eq(true))).thenReturn(
-                OBJECT);
-        when(jsonHelper.toJsonAndSkipCertainFields(eq(object2), anyList(), eq(true))).thenReturn(
-                OBJECT2);
+        when(jsonHelper.compareJson(eq(object1), eq(object2), anyList())).thenReturn(
+                new JsonComparison("{\"a\": 1}", "{\"a\": 2}", "$.a: expected 1 but was 2"));
 
         try {
-            docTest.assertJsonEqualsAndSay(object1, object2, "", Arrays.asList(""));
+            docTest.assertJsonEqualsAndSay(object1, object2, "message", Arrays.asList(""));
             fail();
-        } catch (AssertionError e) {
-            verify(docTestMachine, never()).sayVerify(anyString());
+        } catch (ComparisonFailure e) {
+            assertTrue(e.getMessage().startsWith("message: $.a: expected 1 but was 2"));
+            verify(docTestMachine).sayVerify("message: $.a: expected 1 but was 2");
         } catch (Exception e) {
             fail();
         }
@@ -440,7 +679,7 @@ public class LogicDocTestUnitTest {
     @Test
     public void setTheNameOfTheFile() {
         docTest.ensureDocTestClassSet();
-        verify(docTestMachine).beginDoctest(FILE_NAME, "");
+        verify(docTestMachine).beginDoctest(docTest.getClass(), FILE_NAME, "");
     }
 
     @Test(expected = AssertionError.class)
@@ -450,7 +689,8 @@ public class LogicDocTestUnitTest {
     }
 
     private void instantiateAbstractDocTest() {
-        docTest = new LogicDocTest(docTestMachine, apiTest, jsonHelper, fileHelper, new Configuration()) {
+        docTest = new LogicDocTest(docTestMachine, apiTest, jsonHelper, fileHelper, loadRunner,
+                new Configuration()) {
 
             @Override
             protected String getFileName() {
@@ -465,13 +705,14 @@ public class LogicDocTestUnitTest {
     public void useDefaultintroduction() {
         docTest.ensureDocTestClassSet();
         // verify default value is empty string
-        verify(docTestMachine).beginDoctest(FILE_NAME, "");
+        verify(docTestMachine).beginDoctest(docTest.getClass(), FILE_NAME, "");
     }
 
     @Test
     public void setIntroduction() {
         // create an instance of the logicDocTest which overrides the introduction function
-        docTest = new LogicDocTest(docTestMachine, apiTest, jsonHelper, fileHelper, new Configuration()) {
+        docTest = new LogicDocTest(docTestMachine, apiTest, jsonHelper, fileHelper,
+                new Configuration()) {
             @Override
             public String getIntroduction() {
                 return "intro written by the user";
@@ -485,6 +726,16 @@ public class LogicDocTestUnitTest {
 
         docTest.ensureDocTestClassSet();
         // verify the new intro is used
-        verify(docTestMachine).beginDoctest(FILE_NAME, "intro written by the user");
+        verify(docTestMachine).beginDoctest(docTest.getClass(), FILE_NAME, "intro written by the user");
+    }
+
+    private static ArgumentMatcher<Object> isPayload(final String json) {
+        return new ArgumentMatcher<Object>() {
+            @Override
+            public boolean matches(Object argument) {
+                return argument instanceof JsonPayload
+                        && json.equals(((JsonPayload) argument).getJson());
+            }
+        };
     }
 }
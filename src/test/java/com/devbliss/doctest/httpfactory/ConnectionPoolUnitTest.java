@@ -0,0 +1,181 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.devbliss.doctest.httpfactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.http.pool.PoolStats;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.devbliss.doctest.Configuration;
+import com.devbliss.doctest.utils.FileHelper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import de.devbliss.apitester.ApiResponse;
+import de.devbliss.apitester.Getter;
+import de.devbliss.apitester.TestState;
+
+/**
+ * Unit tests for the {@link ConnectionPool}, against a local http server.
+ */
+public class ConnectionPoolUnitTest {
+
+    private HttpServer server;
+    private Set<Integer> clientPorts;
+    private ConnectionPool pool;
+    private Configuration configuration;
+
+    @Before
+    public void setUp() throws IOException {
+        clientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                clientPorts.add(exchange.getRemoteAddress().getPort());
+                String path = exchange.getRequestURI().getPath();
+                int status = 200;
+                if (path.equals("/login")) {
+                    exchange.getResponseHeaders().add("Set-Cookie", "session=123; Path=/");
+                } else if (path.equals("/redirect")) {
+                    exchange.getResponseHeaders().add("Location", "/");
+                    status = 302;
+                }
+                byte[] body = "ok".getBytes("UTF-8");
+                exchange.sendResponseHeaders(status, body.length);
+                OutputStream output = exchange.getResponseBody();
+                output.write(body);
+                output.close();
+            }
+        });
+        server.start();
+
+        configuration = new Configuration();
+        FileHelper fileHelper = new FileHelper();
+        fileHelper.setConfiguration(configuration);
+        pool = new ConnectionPool(fileHelper);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void theConnectionsAreReusedByAllTheClients() throws Exception {
+        TestState first = pool.createTestState();
+        TestState second = pool.createTestState();
+
+        get(first, "/");
+        get(first, "/");
+        get(second, "/");
+
+        assertEquals(1, clientPorts.size());
+        PoolStats stats = pool.getStats();
+        assertEquals(0, stats.getLeased());
+        assertEquals(1, stats.getAvailable());
+    }
+
+    @Test
+    public void eachClientHasItsOwnCookies() throws Exception {
+        TestState first = pool.createTestState();
+        TestState second = pool.createTestState();
+
+        get(first, "/login");
+        get(second, "/");
+
+        assertEquals("123", first.getCookieValue("session"));
+        assertNull(second.getCookieValue("session"));
+    }
+
+    @Test
+    public void theRedirectsAreNotFollowed() throws Exception {
+        assertEquals(302, get(pool.createTestState(), "/redirect").httpStatus);
+    }
+
+    @Test
+    public void aClientCanNotShutDownThePool() throws Exception {
+        TestState first = pool.createTestState();
+        get(first, "/");
+        first.shutdown();
+
+        assertEquals(200, get(pool.createTestState(), "/").httpStatus);
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    public void theLimitsAreReadFromTheConfiguration() throws Exception {
+        configuration.setMaxConnections(3);
+        get(pool.createTestState(), "/");
+        assertEquals(3, pool.getStats().getMax());
+    }
+
+    @Test
+    public void theIdleConnectionsAreClosed() throws Exception {
+        get(pool.createTestState(), "/");
+        assertEquals(1, pool.getStats().getAvailable());
+
+        configuration.setConnectionIdleTimeout(1);
+        Thread.sleep(10);
+        pool.configure(configuration);
+
+        assertEquals(0, pool.getStats().getAvailable());
+    }
+
+    @Test
+    public void theRequestsAreMeasured() throws Exception {
+        TestState testState = pool.createTestState();
+
+        RequestMetrics first = RequestMetrics.start("GET /");
+        get(testState, "/");
+        first.stop();
+        RequestMetrics second = RequestMetrics.start("GET /");
+        get(testState, "/");
+        second.stop();
+
+        assertEquals(2, first.getResponseBytes());
+        assertNotNull(first.getTimeToFirstByte());
+        assertTrue(first.getTimeToFirstByte() <= first.getTotalTime());
+        assertFalse(first.getConnectionReused());
+        assertTrue(second.getConnectionReused());
+    }
+
+    @Test
+    public void theRequestsAreNotMeasuredByDefault() throws Exception {
+        get(pool.createTestState(), "/");
+        assertNull(RequestMetrics.current());
+    }
+
+    private ApiResponse get(TestState testState, String path) throws Exception {
+        URI uri = new URI("http://localhost:" + server.getAddress().getPort() + path);
+        return Getter.get(uri, testState, new GetWithoutRedirectImpl()).apiResponse;
+    }
+}
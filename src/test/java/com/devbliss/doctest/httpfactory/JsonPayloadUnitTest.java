@@ -0,0 +1,69 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.devbliss.doctest.httpfactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.net.URI;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.util.EntityUtils;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+/**
+ * Unit tests for the {@link JsonPayload}.
+ */
+public class JsonPayloadUnitTest {
+
+    private static final String JSON = "{\"name\":\"J\u00fcrgen\"}";
+
+    @Test
+    public void theEntitySendsTheUtf8BytesOfTheJson() throws Exception {
+        HttpEntity entity = new JsonPayload(JSON).toEntity();
+
+        assertEquals("application/json", entity.getContentType().getValue());
+        assertEquals(JSON, EntityUtils.toString(entity, "UTF-8"));
+        assertEquals(JSON.getBytes("UTF-8").length, entity.getContentLength());
+    }
+
+    @Test
+    public void theFactoriesSendTheSerializedPayload() throws Exception {
+        Gson gson = new Gson();
+        HttpPost post =
+                new PostWithoutRedirectImpl(gson).createPostRequest(new URI("/"), new JsonPayload(
+                        JSON));
+        assertEquals(JSON, EntityUtils.toString(post.getEntity(), "UTF-8"));
+    }
+
+    @Test
+    public void theFactoriesSerializeTheOtherPayloads() throws Exception {
+        Gson gson = new Gson();
+        HttpPost post = new PostWithoutRedirectImpl(gson).createPostRequest(new URI("/"), 42);
+        assertEquals("42", EntityUtils.toString(post.getEntity(), "UTF-8"));
+    }
+
+    @Test
+    public void payloadsWithTheSameJsonAreEqual() {
+        assertEquals(new JsonPayload(JSON), new JsonPayload(JSON));
+        assertEquals(new JsonPayload(JSON).hashCode(), new JsonPayload(JSON).hashCode());
+        assertFalse(new JsonPayload(JSON).equals(new JsonPayload("{}")));
+        assertFalse(new JsonPayload(JSON).equals(JSON));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.devbliss.doctest.load;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link LatencyHistogram}
+ */
+public class LatencyHistogramUnitTest {
+
+    private LatencyHistogram histogram;
+
+    @Before
+    public void setUp() {
+        histogram = new LatencyHistogram();
+    }
+
+    @Test
+    public void emptyHistogram() {
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMean(), 0);
+        assertEquals(0, histogram.getPercentile(50), 0);
+        assertEquals(0, histogram.getMax(), 0);
+    }
+
+    @Test
+    public void percentilesAreApproximatedWithinThreePercent() {
+        for (int i = 0; i < 90; i++) {
+            histogram.record(millis(3));
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(millis(150));
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(3, histogram.getPercentile(50), 3 * 0.03);
+        assertEquals(3, histogram.getPercentile(90), 3 * 0.03);
+        assertEquals(150, histogram.getPercentile(95), 150 * 0.03);
+        assertEquals(150, histogram.getMax(), 0);
+        assertEquals(17.7, histogram.getMean(), 0.001);
+    }
+
+    @Test
+    public void percentilesAreNotRoundedToTheBoundsOfTheReportBuckets() {
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(50500 + 10 * i));
+        }
+
+        assertEquals(51, histogram.getPercentile(50), 51 * 0.03);
+        assertEquals(51.5, histogram.getPercentile(99), 51.5 * 0.03);
+        LatencyHistogram.Bucket bucket = histogram.getBuckets().get(6);
+        assertEquals("< 100 ms", bucket.getLabel());
+        assertEquals(100, bucket.getCount());
+    }
+
+    @Test
+    public void percentilesOfShortLatencies() {
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(10));
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(20));
+
+        assertEquals(0.011, histogram.getPercentile(50), 0.001);
+        assertEquals(0.02, histogram.getPercentile(100), 0);
+    }
+
+    @Test
+    public void latenciesAboveTheLastBound() {
+        histogram.record(millis(60000));
+        assertEquals(60000, histogram.getPercentile(99), 0);
+
+        List<LatencyHistogram.Bucket> buckets = histogram.getBuckets();
+        LatencyHistogram.Bucket last = buckets.get(buckets.size() - 1);
+        assertEquals(">= 10000 ms", last.getLabel());
+        assertEquals(1, last.getCount());
+        assertEquals(100, last.getShare(), 0);
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
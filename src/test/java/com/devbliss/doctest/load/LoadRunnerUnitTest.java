@@ -0,0 +1,150 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.devbliss.doctest.load;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.http.impl.client.BasicCookieStore;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.devbliss.doctest.BatchRequest;
+import com.devbliss.doctest.items.DocItem;
+import com.devbliss.doctest.items.LoadReportDocItem;
+import com.devbliss.doctest.renderer.ReportRenderer;
+import com.google.inject.Provider;
+
+import de.devbliss.apitester.ApiRequest;
+import de.devbliss.apitester.ApiResponse;
+import de.devbliss.apitester.ApiTest;
+import de.devbliss.apitester.Context;
+import de.devbliss.apitester.TestState;
+
+/**
+ * Unit tests for the {@link LoadRunner}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class LoadRunnerUnitTest {
+
+    private static final String NAME = "load";
+
+    @Mock
+    private Provider<ApiTest> apiTests;
+    @Mock
+    private ReportRenderer reportRenderer;
+    @Captor
+    private ArgumentCaptor<List<DocItem>> itemsCaptor;
+
+    private ApiTest apiTest;
+    private URI users;
+    private URI user;
+    private LoadRunner runner;
+
+    @Before
+    public void setUp() throws Exception {
+        users = new URI("http://localhost/users?page=1");
+        user = new URI("http://localhost/users/1");
+        apiTest = mock(ApiTest.class);
+        when(apiTest.getTestState()).thenReturn(new TestState(null, new BasicCookieStore()));
+        when(apiTest.get(users)).thenReturn(context(users, 200));
+        when(apiTest.delete(user, null)).thenReturn(context(user, 503));
+        when(apiTests.get()).thenReturn(apiTest);
+        runner = new LoadRunner(apiTests, reportRenderer);
+    }
+
+    @Test
+    public void replayTheRequests() throws Exception {
+        LoadProfile profile = new LoadProfile();
+        profile.setWorkers(3);
+        profile.setIterations(5);
+        profile.setWarmupIterations(2);
+
+        LoadReport report =
+                runner.run(NAME, Arrays.asList(BatchRequest.get(users), BatchRequest.get(users),
+                        BatchRequest.delete(user)), profile);
+
+        verify(apiTests, times(3)).get();
+        verify(apiTest, times(3 * 7 * 2)).get(users);
+        verify(apiTest, times(3)).shutdown();
+        assertEquals(2, report.getEndpoints().size());
+        EndpointStatistics getUsers = report.getEndpoint("GET /users");
+        assertEquals(30, getUsers.getRequests());
+        assertEquals(0, getUsers.getErrors());
+        EndpointStatistics deleteUser = report.getEndpoint("DELETE /users/1");
+        assertEquals(15, deleteUser.getRequests());
+        assertEquals(15, deleteUser.getErrors());
+        assertEquals(45, report.getRequests());
+        assertEquals(100.0 / 3, report.getErrorRate(), 0.001);
+
+        verify(reportRenderer).render(itemsCaptor.capture(), eq(NAME), eq(""));
+        assertSame(report, ((LoadReportDocItem) itemsCaptor.getValue().get(0)).getReport());
+    }
+
+    @Test
+    public void requestsWithoutResponseAreErrors() throws Exception {
+        when(apiTest.get(users)).thenThrow(new IOException());
+        LoadProfile profile = new LoadProfile();
+        profile.setWorkers(2);
+        profile.setIterations(3);
+        profile.setWarmupIterations(0);
+
+        LoadReport report = runner.run(NAME, Arrays.asList(BatchRequest.get(users)), profile);
+
+        assertEquals(6, report.getRequests());
+        assertEquals(6, report.getErrors());
+        assertEquals(0, report.getEndpoint("GET /users").getMax(), 0);
+    }
+
+    @Test
+    public void runForAGivenDuration() throws Exception {
+        LoadProfile profile = new LoadProfile();
+        profile.setWorkers(2);
+        profile.setDuration(50);
+
+        LoadReport report = runner.run(NAME, Arrays.asList(BatchRequest.get(users)), profile);
+
+        assertEquals(true, report.getDuration() >= 50);
+        assertEquals(true, report.getThroughput() > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noRequestToReplay() throws Exception {
+        runner.run(NAME, Arrays.<BatchRequest> asList(), new LoadProfile());
+    }
+
+    private static Context context(URI uri, int status) {
+        HashMap<String, String> empty = new HashMap<String, String>();
+        return new Context(new ApiResponse(status, "", "", empty), new ApiRequest(uri, "get",
+                empty, empty));
+    }
+}
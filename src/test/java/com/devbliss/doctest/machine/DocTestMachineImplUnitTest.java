@@ -15,8 +15,14 @@
 package com.devbliss.doctest.machine;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -37,15 +43,20 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import com.devbliss.doctest.Configuration;
+import com.devbliss.doctest.httpfactory.RequestMetrics;
 import com.devbliss.doctest.items.AssertDocItem;
 import com.devbliss.doctest.items.DocItem;
 import com.devbliss.doctest.items.JsonDocItem;
 import com.devbliss.doctest.items.RequestDocItem;
+import com.devbliss.doctest.items.RequestGroupDocItem;
 import com.devbliss.doctest.items.RequestUploadDocItem;
 import com.devbliss.doctest.items.ResponseDocItem;
 import com.devbliss.doctest.items.SectionDocItem;
 import com.devbliss.doctest.items.TextDocItem;
+import com.devbliss.doctest.renderer.FinishableReportRenderer;
 import com.devbliss.doctest.renderer.ReportRenderer;
+import com.devbliss.doctest.utils.FileHelper;
 import com.devbliss.doctest.utils.FilterHelper;
 import com.devbliss.doctest.utils.JSONHelper;
 import com.devbliss.doctest.utils.UriHelper;
@@ -81,6 +92,8 @@ public class DocTestMachineImplUnitTest {
     private UriHelper uriHelper;
     @Mock
     private FilterHelper headersHelper;
+    @Mock
+    private FileHelper fileHelper;
 
     @Captor
     private ArgumentCaptor<List<DocItem>> listItemCaptor;
@@ -105,16 +118,18 @@ public class DocTestMachineImplUnitTest {
         apiRequest = new ApiRequest(uri, HTTP_METHOD, headers, cookies);
         apiResponse = new ApiResponse(RESPONSE_CODE, "", JSON_VALID, headers);
 
-        when(jsonHelper.isJsonValid(JSON_VALID)).thenReturn(true);
+        when(jsonHelper.looksLikeJson(JSON_VALID)).thenReturn(true);
+        when(jsonHelper.truncate(JSON_INVALID, 0)).thenReturn(JSON_INVALID);
         when(jsonHelper.prettyPrintJson(JSON_VALID)).thenReturn(PRETTY_JSON);
         when(uriHelper.uriToString(uri)).thenReturn(uriString);
 
-        machine = spy(new DocTestMachineImpl(renderer, jsonHelper, uriHelper, headersHelper));
+        machine = spy(new DocTestMachineImpl(renderer, jsonHelper, uriHelper, headersHelper,
+                fileHelper));
     }
 
     @Test
     public void render() throws Exception {
-        when(machine.getListItem()).thenReturn(listItem);
+        doReturn(listItem).when(machine).getListItem();
         machine.beginDoctest(FILE_NAME, INTRODUCTION);
         machine.endDocTest();
         machine.prepareDocTest();
@@ -272,6 +287,41 @@ public class DocTestMachineImplUnitTest {
         assertEquals(noJson, ((RequestDocItem) listItems.get(1)).getPayload().getExpected());
     }
 
+    @Test
+    public void addResponseItemWithTheMetricsOfTheRequest() throws Exception {
+        RequestMetrics metrics = new RequestMetrics("GET /", 2000000, 1000000, 0, 42, true);
+        machine.beginDoctest(FILE_NAME, INTRODUCTION);
+        machine.sayResponse(apiResponse, metrics, headersToShow);
+        Configuration configuration = new Configuration();
+        configuration.setShowRequestMetrics(false);
+        when(fileHelper.getConfiguration()).thenReturn(configuration);
+        machine.sayResponse(apiResponse, metrics, headersToShow);
+        machine.endDocTest();
+
+        verify(renderer).render(listItemCaptor.capture(), eq(FILE_NAME), eq(INTRODUCTION));
+        List<DocItem> listItems = listItemCaptor.getValue();
+        assertSame(metrics, ((ResponseDocItem) listItems.get(0)).getMetrics());
+        assertNull(((ResponseDocItem) listItems.get(1)).getMetrics());
+    }
+
+    @Test
+    public void addResponseItemWithinThePayloadLimits() throws Exception {
+        Configuration configuration = new Configuration();
+        configuration.setPayloadLimit(100);
+        configuration.setPayloadArrayLimit(10);
+        configuration.setPayloadDepthLimit(2);
+        when(fileHelper.getConfiguration()).thenReturn(configuration);
+        when(jsonHelper.prettyPrintJson(JSON_VALID, 100, 10, 2)).thenReturn(PRETTY_JSON);
+
+        machine.beginDoctest(FILE_NAME, INTRODUCTION);
+        machine.sayResponse(apiResponse, headersToShow);
+        machine.endDocTest();
+
+        verify(renderer).render(listItemCaptor.capture(), eq(FILE_NAME), eq(INTRODUCTION));
+        List<DocItem> listItems = listItemCaptor.getValue();
+        assertEquals(PRETTY_JSON, ((ResponseDocItem) listItems.get(0)).getPayload().getExpected());
+    }
+
     @Test
     public void addUploadRequestItem() throws Exception {
         machine.beginDoctest(FILE_NAME, INTRODUCTION);
@@ -326,6 +376,8 @@ public class DocTestMachineImplUnitTest {
         machine.sayRequest(apiRequest, JSON_INVALID, headersToShow, cookiesToShow);
         machine.endDocTest();
 
+        verify(jsonHelper, never()).prettyPrintJson(JSON_INVALID);
+
         verify(renderer).render(listItemCaptor.capture(), eq(FILE_NAME), eq(INTRODUCTION));
 
         List<DocItem> listItems = listItemCaptor.getValue();
@@ -404,6 +456,168 @@ public class DocTestMachineImplUnitTest {
         assertEquals("say-2", ((TextDocItem) listItems.get(1)).getText());
     }
 
+    @Test
+    public void testClassesRunningInParallelGetTheirOwnReport() throws Exception {
+        machine.beginDoctest(String.class, FILE_NAME, INTRODUCTION);
+        machine.say("say-1");
+
+        Thread otherClass = new Thread() {
+            @Override
+            public void run() {
+                machine.beginDoctest(Integer.class, "other", "other introduction");
+                machine.say("say-2");
+                try {
+                    machine.endDocTest();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        otherClass.start();
+        otherClass.join();
+
+        verify(renderer).render(listItemCaptor.capture(), eq("other"), eq("other introduction"));
+        List<DocItem> otherItems = listItemCaptor.getValue();
+        assertEquals(1, otherItems.size());
+        assertEquals("say-2", ((TextDocItem) otherItems.get(0)).getText());
+
+        machine.beginDoctest(String.class, "ignored", "ignored");
+        machine.endDocTest();
+
+        verify(renderer).render(listItemCaptor.capture(), eq(FILE_NAME), eq(INTRODUCTION));
+        List<DocItem> listItems = listItemCaptor.getValue();
+        assertEquals(1, listItems.size());
+        assertEquals("say-1", ((TextDocItem) listItems.get(0)).getText());
+    }
+
+    @Test
+    public void awaitTheReportsAtTheEndOfTheLastTestClass() throws Exception {
+        final FinishableReportRenderer finishableRenderer = mock(FinishableReportRenderer.class);
+        machine = new DocTestMachineImpl(finishableRenderer, jsonHelper, uriHelper,
+                headersHelper, fileHelper);
+        machine.beginDoctest(String.class, FILE_NAME, INTRODUCTION);
+
+        Thread otherClass = new Thread() {
+            @Override
+            public void run() {
+                machine.beginDoctest(Integer.class, "other", INTRODUCTION);
+                try {
+                    machine.endDocTest();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+                machine.prepareDocTest();
+            }
+        };
+        otherClass.start();
+        otherClass.join();
+        verify(finishableRenderer).render(anyListOf(DocItem.class), eq("other"),
+                eq(INTRODUCTION));
+        verify(finishableRenderer, never()).awaitReports();
+
+        machine.endDocTest();
+        verify(finishableRenderer).awaitReports();
+    }
+
+    @Test
+    public void testMethodsRunningInParallelWriteIntoTheReportOfTheirClass() throws Exception {
+        machine.beginDoctest(String.class, null, null);
+
+        Thread[] methods = new Thread[4];
+        for (int i = 0; i < methods.length; i++) {
+            final String text = "say-" + i;
+            methods[i] = new Thread() {
+                @Override
+                public void run() {
+                    machine.beginDoctest(String.class, FILE_NAME, INTRODUCTION);
+                    machine.say(text);
+                }
+            };
+            methods[i].start();
+        }
+        for (Thread method : methods) {
+            method.join();
+        }
+        machine.endDocTest();
+
+        verify(renderer).render(listItemCaptor.capture(), eq(FILE_NAME), eq(INTRODUCTION));
+        assertEquals(methods.length, listItemCaptor.getValue().size());
+    }
+
+    @Test
+    public void aThreadRunningAnotherClassBeginsANewReport() throws Exception {
+        machine.beginDoctest(String.class, FILE_NAME, INTRODUCTION);
+        machine.say("say-1");
+        machine.beginDoctest(Integer.class, "other", "other introduction");
+        machine.say("say-2");
+        machine.endDocTest();
+
+        verify(renderer).render(listItemCaptor.capture(), eq("other"), eq("other introduction"));
+        List<DocItem> listItems = listItemCaptor.getValue();
+        assertEquals(1, listItems.size());
+        assertEquals("say-2", ((TextDocItem) listItems.get(0)).getText());
+    }
+
+    @Test
+    public void theItemsWrittenLaterAreRenderedAtTheirPlace() throws Exception {
+        machine.beginDoctest(FILE_NAME, INTRODUCTION);
+        machine.say("say-1");
+        final DocTestMachine later = machine.sayLater();
+        machine.say("say-3");
+
+        Thread request = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                    later.say("say-2");
+                    later.endDocTest();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        request.start();
+        machine.endDocTest();
+
+        verify(renderer).render(listItemCaptor.capture(), eq(FILE_NAME), eq(INTRODUCTION));
+        List<DocItem> listItems = listItemCaptor.getValue();
+        assertEquals(3, listItems.size());
+        for (int i = 0; i < listItems.size(); i++) {
+            assertEquals("say-" + (i + 1), ((TextDocItem) listItems.get(i)).getText());
+        }
+    }
+
+    @Test
+    public void theItemsOfAGroupAreRenderedAsOneItem() throws Exception {
+        machine.beginDoctest(FILE_NAME, INTRODUCTION);
+        machine.say("say-1");
+        DocTestMachine group = machine.sayGroup();
+        group.say("say-2");
+        group.say("say-3");
+        group.endDocTest();
+        machine.endDocTest();
+
+        verify(renderer).render(listItemCaptor.capture(), eq(FILE_NAME), eq(INTRODUCTION));
+        List<DocItem> listItems = listItemCaptor.getValue();
+        assertEquals(2, listItems.size());
+        List<DocItem> groupItems = ((RequestGroupDocItem) listItems.get(1)).getItems();
+        assertEquals(2, groupItems.size());
+        assertEquals("say-2", ((TextDocItem) groupItems.get(0)).getText());
+        assertEquals("say-3", ((TextDocItem) groupItems.get(1)).getText());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failIfNoDocTestHasBeenBegun() {
+        machine.say(TEXT);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void prepareDoesNotBeginADocTest() {
+        machine.prepareDocTest();
+        machine.say(TEXT);
+    }
+
     private void initHeadersAndCookies() {
         headersToShow = new ArrayList<String>();
         headersToShow.add("header_1");
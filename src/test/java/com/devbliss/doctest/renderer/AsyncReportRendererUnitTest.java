@@ -0,0 +1,239 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.devbliss.doctest.renderer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import com.devbliss.doctest.Configuration;
+import com.devbliss.doctest.items.DocItem;
+import com.devbliss.doctest.items.TextDocItem;
+import com.devbliss.doctest.utils.FileHelper;
+
+/**
+ * Unit tests for the {@link AsyncReportRenderer}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class AsyncReportRendererUnitTest {
+
+    private static final String NAME = "name";
+    private static final String INTRODUCTION = "introduction";
+
+    @Mock
+    private FinishableReportRenderer delegate;
+
+    private FileHelper fileHelper;
+    private Configuration configuration;
+    private List<DocItem> list;
+    private AsyncReportRenderer renderer;
+
+    @Before
+    public void setUp() {
+        fileHelper = new FileHelper();
+        configuration = new Configuration();
+        fileHelper.setConfiguration(configuration);
+        list = new ArrayList<DocItem>();
+        list.add(new TextDocItem("text"));
+        renderer = new AsyncReportRenderer(delegate, fileHelper);
+    }
+
+    @Test
+    public void renderDirectly() throws Exception {
+        renderer.render(list, NAME, INTRODUCTION);
+        verify(delegate).render(list, NAME, INTRODUCTION);
+    }
+
+    @Test
+    public void renderInBackground() throws Exception {
+        configuration.setAsyncRender(true);
+        final List<Object> rendered = new ArrayList<Object>();
+        doAnswer(new Answer<Void>() {
+            public Void answer(InvocationOnMock invocation) {
+                rendered.add(invocation.getArguments()[0]);
+                rendered.add(fileHelper.getConfiguration());
+                rendered.add(Thread.currentThread());
+                return null;
+            }
+        }).when(delegate).render(anyListOf(DocItem.class), eq(NAME), eq(INTRODUCTION));
+
+        renderer.render(list, NAME, INTRODUCTION);
+        list.clear();
+        fileHelper.setConfiguration(new Configuration());
+        renderer.finish();
+
+        assertEquals(3, rendered.size());
+        assertEquals(1, ((List<?>) rendered.get(0)).size());
+        assertSame(configuration, rendered.get(1));
+        assertNotSame(Thread.currentThread(), rendered.get(2));
+        verify(delegate).finish();
+    }
+
+    @Test
+    public void failureIsThrownByFinish() throws Exception {
+        configuration.setAsyncRender(true);
+        Exception exception = new Exception("cannot render");
+        CountDownLatch released = new CountDownLatch(1);
+        doAnswer(failWhenReleased(exception, released)).when(delegate).render(
+                anyListOf(DocItem.class), anyString(), anyString());
+
+        renderer.render(list, NAME, INTRODUCTION);
+        released.countDown();
+        try {
+            renderer.finish();
+            fail("The failure of the rendering thread should be thrown");
+        } catch (Exception e) {
+            assertSame(exception, e.getCause());
+            assertTrue(e.getMessage().contains(NAME));
+        }
+    }
+
+    @Test
+    public void failureIsThrownByAwaitReports() throws Exception {
+        configuration.setAsyncRender(true);
+        Exception exception = new Exception("cannot render");
+        CountDownLatch released = new CountDownLatch(1);
+        doAnswer(failWhenReleased(exception, released)).when(delegate).render(
+                anyListOf(DocItem.class), anyString(), anyString());
+
+        renderer.render(list, NAME, INTRODUCTION);
+        released.countDown();
+        try {
+            renderer.awaitReports();
+            fail("The failure of the rendering thread should be thrown");
+        } catch (Exception e) {
+            assertSame(exception, e.getCause());
+            assertTrue(e.getMessage().contains(NAME));
+        }
+        verify(delegate, never()).finish();
+    }
+
+    @Test
+    public void failureIsThrownByTheNextReport() throws Exception {
+        configuration.setAsyncRender(true);
+        CountDownLatch released = new CountDownLatch(1);
+        doAnswer(failWhenReleased(new Exception("cannot render"), released)).when(delegate)
+                .render(anyListOf(DocItem.class), eq(NAME), anyString());
+
+        final CountDownLatch nextRendered = new CountDownLatch(1);
+        doAnswer(new Answer<Void>() {
+            public Void answer(InvocationOnMock invocation) {
+                nextRendered.countDown();
+                return null;
+            }
+        }).when(delegate).render(anyListOf(DocItem.class), eq("next"), anyString());
+
+        renderer.render(list, NAME, INTRODUCTION);
+        renderer.render(list, "next", INTRODUCTION);
+        released.countDown();
+        // the reports are rendered one after the other by the only rendering thread
+        assertTrue(nextRendered.await(1, TimeUnit.SECONDS));
+        configuration.setAsyncRender(false);
+        try {
+            renderer.render(list, "last", INTRODUCTION);
+            fail("The failure of the rendering thread should be thrown");
+        } catch (Exception e) {
+            assertTrue(e.getMessage().contains(NAME));
+        }
+        verify(delegate).render(list, "last", INTRODUCTION);
+    }
+
+    @Test
+    public void renderAtFinishIfDeferred() throws Exception {
+        final List<Object> rendered = new ArrayList<Object>();
+        doAnswer(new Answer<Void>() {
+            public Void answer(InvocationOnMock invocation) {
+                rendered.add(invocation.getArguments()[1]);
+                rendered.add(fileHelper.getConfiguration());
+                rendered.add(Thread.currentThread());
+                return null;
+            }
+        }).when(delegate).render(anyListOf(DocItem.class), anyString(), eq(INTRODUCTION));
+
+        renderer.deferUntilFinish();
+        verify(delegate).deferUntilFinish();
+        renderer.render(list, NAME, INTRODUCTION);
+        Configuration otherConfiguration = new Configuration();
+        fileHelper.setConfiguration(otherConfiguration);
+        renderer.render(list, "other", INTRODUCTION);
+        assertEquals(0, rendered.size());
+
+        renderer.finish();
+
+        assertEquals(6, rendered.size());
+        assertSame(configuration, rendered.get(rendered.indexOf(NAME) + 1));
+        assertSame(otherConfiguration, rendered.get(rendered.indexOf("other") + 1));
+        assertNotSame(Thread.currentThread(), rendered.get(2));
+        assertNotSame(Thread.currentThread(), rendered.get(5));
+        verify(delegate).finish();
+    }
+
+    @Test
+    public void renderWithoutConfiguration() throws Exception {
+        fileHelper = mock(FileHelper.class);
+        when(fileHelper.getConfiguration()).thenReturn(null);
+        renderer = new AsyncReportRenderer(delegate, fileHelper);
+
+        renderer.render(list, NAME, INTRODUCTION);
+        verify(delegate).render(list, NAME, INTRODUCTION);
+    }
+
+    @Test
+    public void finishADelegateWhichCanNotBeFinished() throws Exception {
+        ReportRenderer plainDelegate = mock(ReportRenderer.class);
+        renderer = new AsyncReportRenderer(plainDelegate, fileHelper);
+        renderer.deferUntilFinish();
+        renderer.render(list, NAME, INTRODUCTION);
+        verifyZeroInteractions(plainDelegate);
+
+        renderer.finish();
+        verify(plainDelegate).render(anyListOf(DocItem.class), eq(NAME), eq(INTRODUCTION));
+    }
+
+    private static Answer<Void> failWhenReleased(final Exception exception,
+            final CountDownLatch released) {
+        return new Answer<Void>() {
+            public Void answer(InvocationOnMock invocation) throws Exception {
+                released.await();
+                throw exception;
+            }
+        };
+    }
+}
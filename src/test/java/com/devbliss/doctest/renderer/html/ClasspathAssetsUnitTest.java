@@ -0,0 +1,56 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.devbliss.doctest.renderer.html;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.devbliss.doctest.items.ReportFileDocItem;
+
+/**
+ * Unit tests for the {@link ClasspathAssets}
+ */
+public class ClasspathAssetsUnitTest {
+
+    @Test
+    public void assetsAreReadOnce() {
+        assertSame(ClasspathAssets.getCss(), ClasspathAssets.getCss());
+        assertSame(ClasspathAssets.getJsCode(), ClasspathAssets.getJsCode());
+    }
+
+    @Test
+    public void jsCodeContainsAllTheScripts() {
+        String jsCode = ClasspathAssets.getJsCode();
+        String script = ClasspathAssets.get(ClasspathAssets.getScripts().get(0));
+        String jquery = ClasspathAssets.get(ClasspathAssets.getScripts().get(1));
+        assertEquals(script + jquery, jsCode);
+        assertTrue(script.contains("function toggle(id)"));
+    }
+
+    @Test
+    public void unknownAsset() {
+        assertNull(ClasspathAssets.get("/unknown.css"));
+    }
+
+    @Test
+    public void reportUsesTheCachedJsCode() {
+        ReportFileDocItem report = new ReportFileDocItem("name", "", "");
+        assertSame(ClasspathAssets.getJsCode(), report.getJsCode());
+    }
+}
@@ -14,26 +14,38 @@
 
 package com.devbliss.doctest.renderer.html;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import com.devbliss.doctest.Configuration;
+import com.devbliss.doctest.items.AssertDocItem;
 import com.devbliss.doctest.items.DocItem;
 import com.devbliss.doctest.items.IndexFileDocItem;
 import com.devbliss.doctest.items.LinkDocItem;
 import com.devbliss.doctest.items.MenuDocItem;
+import com.devbliss.doctest.items.RequestDocItem;
 import com.devbliss.doctest.utils.FileHelper;
+import com.devbliss.doctest.utils.ReportManifest;
 
 /**
  * Unit tests for the {@link HtmlIndexFileRenderer}
@@ -51,13 +63,22 @@ public class HtmlIndexFileRendererUnitTest {
     private HtmlItems htmlItems;
     @Mock
     private FileHelper fileHelper;
+    @Mock
+    private ReportManifest manifest;
+    @Captor
+    private ArgumentCaptor<ReportManifest.Entry> entryCaptor;
+    @Captor
+    private ArgumentCaptor<MenuDocItem> menuCaptor;
 
     private HtmlIndexFileRenderer renderer;
+    private Configuration configuration;
 
     @Before
     public void setUp() {
+        configuration = new Configuration();
         when(fileHelper.getCompleteFileName(NAME, ".html")).thenReturn(COMPLETE_NAME);
-        renderer = new HtmlIndexFileRenderer(htmlItems, fileHelper);
+        when(fileHelper.getConfiguration()).thenReturn(configuration);
+        renderer = new HtmlIndexFileRenderer(htmlItems, fileHelper, manifest);
     }
 
     @Test
@@ -69,4 +90,56 @@ public class HtmlIndexFileRendererUnitTest {
         verify(htmlItems).getIndexTemplate(any(IndexFileDocItem.class));
         verify(fileHelper).writeFile(eq(COMPLETE_NAME), anyString());
     }
+
+    @Test
+    public void addReportToTheManifest() throws Exception {
+        List<DocItem> listTemplates =
+                Arrays.<DocItem> asList(new RequestDocItem("get", "/", null, null),
+                        new AssertDocItem("expected"));
+        renderer.addReport("report", listTemplates);
+
+        verify(manifest).append(eq(configuration.getHtmlOutputDirectory()), entryCaptor.capture());
+        ReportManifest.Entry entry = entryCaptor.getValue();
+        assertEquals("report.html", entry.getFileName());
+        assertEquals("report", entry.getTitle());
+        assertEquals(2, entry.getItems());
+        assertEquals(1, entry.getRequests());
+        verify(fileHelper, never()).writeFile(anyString(), anyString());
+    }
+
+    @Test
+    public void renderPendingIndexesFromTheManifest() throws Exception {
+        String directory = configuration.getHtmlOutputDirectory();
+        when(manifest.read(directory)).thenReturn(
+                Arrays.asList(new ReportManifest.Entry("report.html", "report", 1, 0, 0L)));
+        renderer.addReport("report", new ArrayList<DocItem>());
+
+        renderer.renderPendingIndexes();
+        verify(htmlItems).getListFilesTemplate(menuCaptor.capture());
+        List<LinkDocItem> files = menuCaptor.getValue().getFiles();
+        assertEquals(1, files.size());
+        assertEquals("report.html", files.get(0).getHref());
+        verify(fileHelper).writeFile(eq(directory + "index.html"), anyString());
+        verify(fileHelper, never()).getListOfFile(anyString());
+
+        // nothing left to render
+        renderer.renderPendingIndexes();
+        verify(manifest).read(directory);
+    }
+
+    @Test
+    public void renderPendingIndexesThrowsTheFailure() throws Exception {
+        String directory = configuration.getHtmlOutputDirectory();
+        IOException failure = new IOException("manifest");
+        when(manifest.read(directory)).thenThrow(failure);
+        renderer.addReport("report", new ArrayList<DocItem>());
+
+        try {
+            renderer.renderPendingIndexes();
+            fail();
+        } catch (IOException e) {
+            assertSame(failure, e);
+        }
+        verify(fileHelper, never()).writeFile(anyString(), anyString());
+    }
 }
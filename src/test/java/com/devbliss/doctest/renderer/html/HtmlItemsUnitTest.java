@@ -0,0 +1,210 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.devbliss.doctest.renderer.html;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import testutils.Utils;
+
+import com.devbliss.doctest.httpfactory.RequestMetrics;
+import com.devbliss.doctest.items.AssertDocItem;
+import com.devbliss.doctest.items.DocItem;
+import com.devbliss.doctest.items.IndexFileDocItem;
+import com.devbliss.doctest.items.LoadReportDocItem;
+import com.devbliss.doctest.items.ReportFileDocItem;
+import com.devbliss.doctest.items.RequestDocItem;
+import com.devbliss.doctest.items.RequestGroupDocItem;
+import com.devbliss.doctest.items.ResponseDocItem;
+import com.devbliss.doctest.items.TextDocItem;
+import com.devbliss.doctest.load.EndpointStatistics;
+import com.devbliss.doctest.load.LoadProfile;
+import com.devbliss.doctest.load.LoadReport;
+import com.devbliss.doctest.templating.ConfigurationWrapper;
+import com.devbliss.doctest.utils.FileHelper;
+
+import de.devbliss.apitester.ApiResponse;
+import freemarker.template.Configuration;
+import freemarker.template.DefaultObjectWrapper;
+
+/**
+ * Unit tests for the {@link HtmlItems}
+ */
+public class HtmlItemsUnitTest {
+
+    private Configuration configuration;
+    private com.devbliss.doctest.Configuration doctestConfiguration;
+    private HtmlItems htmlItems;
+
+    @Before
+    public void setUp() throws Exception {
+        doctestConfiguration = new com.devbliss.doctest.Configuration();
+        FileHelper fileHelper = new FileHelper();
+        fileHelper.setConfiguration(doctestConfiguration);
+        configuration = spy(new ConfigurationWrapper(new DefaultObjectWrapper()));
+        htmlItems = new HtmlItems(configuration, new HtmlAssets(fileHelper));
+    }
+
+    @After
+    public void tearDown() {
+        Utils.deleteDirectory(new File(doctestConfiguration.getHtmlOutputDirectory()
+                + HtmlAssets.DIRECTORY));
+    }
+
+    @Test
+    public void inlineAssets() throws Exception {
+        String report = htmlItems.getReportFileTemplate(new ReportFileDocItem("name", "", ""));
+        assertTrue(report.contains("<style>"));
+        assertFalse(report.contains(HtmlAssets.DIRECTORY));
+    }
+
+    @Test
+    public void linkSharedAssets() throws Exception {
+        doctestConfiguration.setSharedAssets(true);
+        String report = htmlItems.getReportFileTemplate(new ReportFileDocItem("name", "", ""));
+        String index = htmlItems.getIndexTemplate(new IndexFileDocItem("index", ""));
+        assertFalse(report.contains("<style>"));
+        assertFalse(index.contains("<style>"));
+
+        File[] assets =
+                new File(doctestConfiguration.getHtmlOutputDirectory() + HtmlAssets.DIRECTORY)
+                        .listFiles();
+        assertEquals(3, assets.length);
+        for (File asset : assets) {
+            assertTrue(report.contains("\"" + HtmlAssets.DIRECTORY + asset.getName() + "\""));
+        }
+        assertTrue(index.contains(HtmlAssets.DIRECTORY + "htmlStyle-"));
+    }
+
+    @Test
+    public void hashedAssetName() throws Exception {
+        String name = HtmlAssets.getHashedName("/htmlStyle.css", "content");
+        assertTrue(name.matches("htmlStyle-[0-9a-f]{12}\\.css"));
+        assertFalse(name.equals(HtmlAssets.getHashedName("/htmlStyle.css", "other content")));
+    }
+
+    @Test
+    public void templatesAreLoadedOnce() throws Exception {
+        htmlItems.getTemplateForItem(new AssertDocItem("first"));
+        htmlItems.getTemplateForItem(new AssertDocItem("second"));
+        verify(configuration, times(1)).getTemplate("assert.ftl");
+    }
+
+    @Test
+    public void renderItem() throws Exception {
+        String result = htmlItems.getTemplateForItem(new TextDocItem("some text"));
+        assertTrue(result.contains("<p>some text</p>"));
+    }
+
+    @Test
+    public void unknownItemIsResolvedByItsName() throws Exception {
+        DocItem item = new CustomTextDocItem("custom");
+        htmlItems.getTemplateForItem(item);
+        String result = htmlItems.getTemplateForItem(item);
+        assertTrue(result.contains("<p>custom</p>"));
+        verify(configuration, times(2)).getTemplate("text.ftl");
+    }
+
+    @Test
+    public void renderRequestGroup() throws Exception {
+        RequestGroupDocItem group = new RequestGroupDocItem();
+        Map<String, String> empty = new HashMap<String, String>();
+        group.getItems().add(new RequestDocItem("get", "/first", empty, empty));
+        group.getItems().add(
+                new ResponseDocItem(new ApiResponse(200, "OK", "", empty), null, empty));
+        group.getItems().add(new RequestDocItem("post", "/second", "{}", empty, empty));
+        group.getItems().add(
+                new ResponseDocItem(new ApiResponse(404, "Not Found", "", empty), null, empty));
+
+        String result = htmlItems.getTemplateForItem(group);
+        assertTrue(result.contains("<td>GET</td>"));
+        assertTrue(result.contains("<td>/first</td>"));
+        assertTrue(result.contains("<td>200</td>"));
+        assertTrue(result.contains("<td>POST</td>"));
+        assertTrue(result.contains("<td>404</td>"));
+        assertTrue(result.contains("id=" + group.getId() + "_1 "));
+        assertTrue(result.contains("URI: /second"));
+        assertEquals(2, group.getRequestCount());
+    }
+
+    @Test
+    public void renderLoadReport() throws Exception {
+        EndpointStatistics endpoint = new EndpointStatistics("GET /users");
+        endpoint.record(TimeUnit.MILLISECONDS.toNanos(12), 200);
+        endpoint.record(TimeUnit.MILLISECONDS.toNanos(30), 500);
+        LoadReport report =
+                new LoadReport("load", new LoadProfile(), TimeUnit.SECONDS.toNanos(1), Arrays
+                        .asList(endpoint));
+        LoadReportDocItem item = new LoadReportDocItem(report);
+
+        String result = htmlItems.getTemplateForItem(item);
+        assertTrue(result.contains("<td>GET /users</td>"));
+        assertTrue(result.contains("id=" + item.getId() + "_0 "));
+        assertTrue(result.contains("<td>&lt; 20 ms</td>"));
+        assertTrue(result.contains("width: 50%"));
+    }
+
+    @Test
+    public void renderResponseWithMetrics() throws Exception {
+        Map<String, String> empty = new HashMap<String, String>();
+        ResponseDocItem response =
+                new ResponseDocItem(new ApiResponse(200, "OK", "", empty), null, empty,
+                        new RequestMetrics("GET /", 12500000, 4000000, 10, 2048, true));
+
+        String result = htmlItems.getTemplateForItem(response);
+        assertTrue(result.contains("Time: 12.5 ms (first byte after 4.0 ms)")
+                || result.contains("Time: 12,5 ms (first byte after 4,0 ms)"));
+        assertTrue(result.contains("10 bytes sent"));
+        assertTrue(result.contains("Connection: reused"));
+    }
+
+    @Test
+    public void writeRunOfItems() throws Exception {
+        List<DocItem> items = new ArrayList<DocItem>();
+        items.add(new TextDocItem("first"));
+        items.add(new AssertDocItem("second"));
+        StringWriter writer = new StringWriter();
+        htmlItems.writeTemplatesForItems(items, writer);
+
+        String expected =
+                htmlItems.getTemplateForItem(items.get(0))
+                        + htmlItems.getTemplateForItem(items.get(1));
+        assertEquals(expected, writer.toString());
+    }
+
+    private static class CustomTextDocItem extends TextDocItem {
+
+        CustomTextDocItem(String text) {
+            super(text);
+        }
+    }
+}
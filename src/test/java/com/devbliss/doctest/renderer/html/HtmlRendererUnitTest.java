@@ -15,16 +15,25 @@
 package com.devbliss.doctest.renderer.html;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyList;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -34,6 +43,8 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import com.devbliss.doctest.Configuration;
+import com.devbliss.doctest.httpfactory.RequestMetrics;
 import com.devbliss.doctest.items.AssertDocItem;
 import com.devbliss.doctest.items.DocItem;
 import com.devbliss.doctest.items.HighlightedTextDocItem;
@@ -44,11 +55,18 @@ import com.devbliss.doctest.items.MenuDocItem;
 import com.devbliss.doctest.items.MultipleTextDocItem;
 import com.devbliss.doctest.items.ReportFileDocItem;
 import com.devbliss.doctest.items.RequestDocItem;
+import com.devbliss.doctest.items.RequestGroupDocItem;
+import com.devbliss.doctest.items.RequestSummaryDocItem;
 import com.devbliss.doctest.items.ResponseDocItem;
 import com.devbliss.doctest.items.SectionDocItem;
+import com.devbliss.doctest.items.TextDocItem;
+import com.devbliss.doctest.templating.ConfigurationWrapper;
 import com.devbliss.doctest.utils.FileHelper;
 import com.devbliss.doctest.utils.JSONHelper;
 
+import de.devbliss.apitester.ApiResponse;
+import freemarker.template.DefaultObjectWrapper;
+
 /**
  * Unit tests for the {@link HtmlRenderer}
  * 
@@ -96,6 +114,8 @@ public class HtmlRendererUnitTest {
     private ArgumentCaptor<ReportFileDocItem> fileCaptor;
     @Captor
     private ArgumentCaptor<MenuDocItem> menuCaptor;
+    @Captor
+    private ArgumentCaptor<DocItem> itemCaptor;
 
     private HtmlRenderer renderer;
     private List<DocItem> listTemplates;
@@ -195,6 +215,42 @@ public class HtmlRendererUnitTest {
         verifyLinkDocItem("#section3", SECTION_TITLE + "1", menuFiles.get(2));
     }
 
+    @Test
+    public void renderTheRequestSummaryFirst() throws Exception {
+        Map<String, String> empty = new HashMap<String, String>();
+        ApiResponse response = new ApiResponse(200, "OK", "", empty);
+        for (int millis = 1; millis <= 20; millis++) {
+            listTemplates.add(new ResponseDocItem(response, null, empty, new RequestMetrics(
+                    "GET /users", millis * 1000000L, -1, 0, 0, null)));
+        }
+        RequestGroupDocItem group = new RequestGroupDocItem();
+        group.getItems().add(
+                new ResponseDocItem(response, null, empty, new RequestMetrics("POST /users",
+                        5000000, -1, 0, 0, null)));
+        listTemplates.add(group);
+
+        renderer.render(listTemplates, NAME, INTRODUCTION);
+
+        verify(htmlItems, times(22)).getTemplateForItem(itemCaptor.capture());
+        List<RequestSummaryDocItem.Entry> entries =
+                ((RequestSummaryDocItem) itemCaptor.getAllValues().get(0)).getEntries();
+        assertEquals(2, entries.size());
+        assertEquals("GET /users", entries.get(0).getEndpoint());
+        assertEquals(20, entries.get(0).getRequests());
+        assertEquals(10, entries.get(0).getP50(), 0);
+        assertEquals(19, entries.get(0).getP95(), 0);
+        assertEquals(20, entries.get(0).getMax(), 0);
+        assertEquals("POST /users", entries.get(1).getEndpoint());
+        assertEquals(5, entries.get(1).getMax(), 0);
+    }
+
+    @Test
+    public void noRequestSummaryWithoutMetrics() throws Exception {
+        listTemplates.add(responseDocItem);
+        renderer.render(listTemplates, NAME, INTRODUCTION);
+        verify(htmlItems, never()).getTemplateForItem(isA(RequestSummaryDocItem.class));
+    }
+
     @Test
     public void renderRequest() throws Exception {
         listTemplates.add(requestDocItem);
@@ -235,6 +291,113 @@ public class HtmlRendererUnitTest {
         verifyFilesAreCreated();
     }
 
+    @Test
+    public void renderStreamed() throws Exception {
+        StringWriter writer = new StringWriter();
+        Configuration configuration = new Configuration();
+        configuration.setStreamingRender(true);
+        when(helper.getConfiguration()).thenReturn(configuration);
+        when(helper.openFileWriter(COMPLETE_NAME)).thenReturn(writer);
+
+        listTemplates.add(section1);
+        listTemplates.add(requestDocItem);
+        renderer.render(listTemplates, NAME, INTRODUCTION);
+
+        verify(section1).setHref("section1");
+        verify(htmlItems).writeReportFileTemplate(fileCaptor.capture(), eq(writer));
+        ReportFileDocItem docItem = fileCaptor.getValue();
+        assertEquals(NAME, docItem.getName());
+        assertNull(docItem.getItems());
+        verify(helper, never()).writeFile(anyString(), anyString());
+        verify(indexFileGenerator).render(null, "index", INTRODUCTION);
+    }
+
+    @Test
+    public void discardTheStreamedReportIfItFails() throws Exception {
+        StringWriter writer = new StringWriter();
+        Configuration configuration = new Configuration();
+        configuration.setStreamingRender(true);
+        when(helper.getConfiguration()).thenReturn(configuration);
+        when(helper.openFileWriter(COMPLETE_NAME)).thenReturn(writer);
+        RuntimeException failure = new RuntimeException("template");
+        doThrow(failure).when(htmlItems).writeReportFileTemplate(any(ReportFileDocItem.class),
+                eq(writer));
+
+        listTemplates.add(requestDocItem);
+        try {
+            renderer.render(listTemplates, NAME, INTRODUCTION);
+            fail();
+        } catch (RuntimeException e) {
+            assertSame(failure, e);
+        }
+        verify(helper).discardFileWriter(writer);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void deferIndex() throws Exception {
+        Configuration configuration = new Configuration();
+        configuration.setDeferredIndex(true);
+        when(helper.getConfiguration()).thenReturn(configuration);
+
+        listTemplates.add(requestDocItem);
+        renderer.render(listTemplates, NAME, INTRODUCTION);
+
+        verify(helper).writeFile(COMPLETE_NAME, HTML);
+        verify(indexFileGenerator).addReport(NAME, listTemplates);
+        verify(indexFileGenerator, never()).render(anyList(), anyString(), anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void deferIndexUntilFinish() throws Exception {
+        when(helper.getConfiguration()).thenReturn(new Configuration());
+
+        listTemplates.add(requestDocItem);
+        renderer.deferUntilFinish();
+        renderer.render(listTemplates, NAME, INTRODUCTION);
+
+        verify(indexFileGenerator).addReport(NAME, listTemplates);
+        verify(indexFileGenerator, never()).render(anyList(), anyString(), anyString());
+    }
+
+    @Test
+    public void streamedReportEqualsBufferedReport() throws Exception {
+        HtmlItems items =
+                new HtmlItems(new ConfigurationWrapper(new DefaultObjectWrapper()),
+                        new HtmlAssets(helper));
+        StringWriter writer = new StringWriter();
+        Configuration configuration = new Configuration();
+        when(helper.getConfiguration()).thenReturn(configuration);
+        when(helper.openFileWriter(COMPLETE_NAME)).thenReturn(writer);
+        renderer = new HtmlRenderer(indexFileGenerator, items, helper, jsonHelper);
+
+        renderer.render(createReport(), NAME, INTRODUCTION);
+        ArgumentCaptor<String> bufferedCaptor = ArgumentCaptor.forClass(String.class);
+        verify(helper).writeFile(eq(COMPLETE_NAME), bufferedCaptor.capture());
+
+        configuration.setStreamingRender(true);
+        // reset the section ids to get the same ids in both reports
+        renderer = new HtmlRenderer(indexFileGenerator, items, helper, jsonHelper);
+        renderer.render(createReport(), NAME, INTRODUCTION);
+
+        assertEquals(withoutDate(bufferedCaptor.getValue()), withoutDate(writer.toString()));
+    }
+
+    private List<DocItem> createReport() {
+        List<DocItem> report = new ArrayList<DocItem>();
+        report.add(new SectionDocItem(SECTION_TITLE + "1"));
+        report.add(new TextDocItem("some text"));
+        report.add(new MultipleTextDocItem("text %s", new String[] {"highlighted"}));
+        report.add(new SectionDocItem(SECTION_TITLE + "2"));
+        report.add(new AssertDocItem("expected"));
+        return report;
+    }
+
+    private String withoutDate(String report) {
+        return report.replaceAll("perfomed at: .*</div>", "");
+    }
+
     private void verifyFilesAreCreated() throws Exception {
         verify(helper).writeFile(COMPLETE_NAME, HTML);
         verify(indexFileGenerator).render(null, "index", INTRODUCTION);
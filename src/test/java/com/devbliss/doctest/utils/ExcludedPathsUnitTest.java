@@ -0,0 +1,67 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.devbliss.doctest.utils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Unit test for {@link ExcludedPaths}
+ */
+public class ExcludedPathsUnitTest {
+
+    @Test
+    public void excludeNameAtAnyDepth() {
+        ExcludedPaths paths = new ExcludedPaths(Arrays.asList("id"));
+        assertFalse(paths.hasPaths());
+        assertTrue(paths.getRoot().isExcluded("id"));
+        assertTrue(paths.getRoot().getField("user").getField("order").isExcluded("id"));
+        assertFalse(paths.getRoot().isExcluded("name"));
+    }
+
+    @Test
+    public void excludePath() {
+        ExcludedPaths paths = new ExcludedPaths(Arrays.asList("user.id"));
+        assertTrue(paths.hasPaths());
+        assertFalse(paths.getRoot().isExcluded("id"));
+        assertTrue(paths.getRoot().getField("user").isExcluded("id"));
+        assertFalse(paths.getRoot().getField("order").isExcluded("id"));
+        assertFalse(paths.getRoot().getField("user").getField("user").isExcluded("id"));
+    }
+
+    @Test
+    public void excludeWithWildcard() {
+        ExcludedPaths paths = new ExcludedPaths(Arrays.asList("*.id", "items.*.name"));
+        assertFalse(paths.getRoot().isExcluded("id"));
+        assertTrue(paths.getRoot().getField("user").isExcluded("id"));
+        assertTrue(paths.getRoot().getField("order").isExcluded("id"));
+        assertFalse(paths.getRoot().getField("user").getField("order").isExcluded("id"));
+
+        ExcludedPaths.Position items = paths.getRoot().getField("items");
+        assertTrue(items.getField("first").isExcluded("name"));
+        assertFalse(items.isExcluded("name"));
+    }
+
+    @Test
+    public void noExclusion() {
+        ExcludedPaths paths = new ExcludedPaths(null);
+        assertTrue(paths.isEmpty());
+        assertFalse(paths.getRoot().getField("a").isExcluded("b"));
+    }
+}
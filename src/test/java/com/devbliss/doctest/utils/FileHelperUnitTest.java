@@ -14,25 +14,28 @@
 
 package com.devbliss.doctest.utils;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
-import static testutils.Utils.getFilesInOutputDirectory;
-import static testutils.Utils.verifyTheFileHasBeenCreated;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileWriter;
+import java.io.Writer;
 import java.util.List;
 
-import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import testutils.Utils;
 
 import com.devbliss.doctest.Configuration;
 import com.devbliss.doctest.items.LinkDocItem;
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
 
 /**
  * Unit test for {@link FileHelper}
@@ -47,20 +50,19 @@ public class FileHelperUnitTest {
     private static final String NAME = "name";
     private static final String DOC = "finaleDoc";
     private final Configuration configuration = new Configuration();
+    @Rule
+    public TemporaryFolder outputDirectory = new TemporaryFolder();
     private FileHelper helper;
     private String directory;
 
     @Before
     public void setUp() {
+        // each test writes into its own directory: getListOfFile counted the reports left in the
+        // shared one by the integration tests, and the shared one is left untouched for them
+        directory = outputDirectory.getRoot().getAbsolutePath() + "/";
+        configuration.setHtmlOutputDirectory(directory);
         helper = new FileHelper();
         helper.setConfiguration(configuration);
-        directory = configuration.getHtmlOutputDirectory();
-        new File(directory).mkdirs();
-    }
-
-    @After
-    public void tearDown() {
-        Utils.deleteDirectory(new File(directory));
     }
 
     @Test
@@ -82,31 +84,82 @@ public class FileHelperUnitTest {
     @Test
     public void writeFile() throws Exception {
         helper.writeFile(directory + FILE, DOC);
-        verifyTheFileHasBeenCreated(FILE);
+        assertTrue(new File(directory + FILE).isFile());
     }
 
     @Test
     public void writeFileContentIsNull() throws Exception {
         helper.writeFile(directory + FILE, null);
-        assertEquals(0, getFilesInOutputDirectory().size());
+        assertEquals(0, new File(directory).list().length);
+    }
+
+    @Test
+    public void writeFileAsUtf8() throws Exception {
+        helper.writeFile(directory + FILE, "\u00f6\u00e4\u00fc");
+        byte[] content = Files.toByteArray(new File(directory + FILE));
+        assertArrayEquals("\u00f6\u00e4\u00fc".getBytes("UTF-8"), content);
+    }
+
+    @Test
+    public void writeFileReplacesTheExistingFile() throws Exception {
+        helper.writeFile(directory + FILE, "first content");
+        helper.writeFile(directory + FILE, DOC);
+        assertEquals(DOC, Files.toString(new File(directory + FILE), Charsets.UTF_8));
+        // no temporary file is left
+        assertEquals(1, new File(directory).list().length);
+    }
+
+    @Test
+    public void openFileWriterReplacesTheFileWhenClosed() throws Exception {
+        helper.writeFile(directory + FILE, "first content");
+        Writer writer = helper.openFileWriter(directory + FILE);
+        writer.write(DOC);
+        writer.flush();
+        assertEquals("first content", Files.toString(new File(directory + FILE), Charsets.UTF_8));
+
+        writer.close();
+        assertEquals(DOC, Files.toString(new File(directory + FILE), Charsets.UTF_8));
+        // no temporary file is left
+        assertEquals(1, new File(directory).list().length);
+    }
+
+    @Test
+    public void discardFileWriter() throws Exception {
+        Writer writer = helper.openFileWriter(directory + FILE);
+        writer.write(DOC);
+        helper.discardFileWriter(writer);
+        writer.close();
+        assertEquals(0, new File(directory).list().length);
+    }
+
+    @Test
+    public void writeFileGivesUpAfterRetries() throws Exception {
+        // a non empty directory can not be replaced by a file
+        new File(directory + FILE + "/child").mkdirs();
+        try {
+            helper.writeFile(directory + FILE, DOC);
+            fail("The file can not be written");
+        } catch (IllegalStateException e) {
+            assertEquals(1, new File(directory).list().length);
+        }
     }
 
     @Test(expected = NullPointerException.class)
     public void writeFileNameIsEmpty() throws Exception {
         helper.writeFile("", DOC);
-        assertEquals(0, getFilesInOutputDirectory().size());
+        assertEquals(0, new File(directory).list().length);
     }
 
     @Test(expected = NullPointerException.class)
     public void writeFileNameIsNull() throws Exception {
         helper.writeFile(null, DOC);
-        assertEquals(0, getFilesInOutputDirectory().size());
+        assertEquals(0, new File(directory).list().length);
     }
 
     @Test(expected = NullPointerException.class)
     public void writeFileNameIsInvalid() throws Exception {
         helper.writeFile("blabla", DOC);
-        assertEquals(0, getFilesInOutputDirectory().size());
+        assertEquals(0, new File(directory).list().length);
     }
 
     @Test
@@ -115,6 +168,35 @@ public class FileHelperUnitTest {
         assertEquals("content<br/>öf <br/>the text<br/>file", result);
     }
 
+    @Test
+    public void readFilePreview() throws Exception {
+        String result = helper.readFilePreview(new File("src/test/resources/file.txt"), 1000);
+        assertEquals("content<br/>\u00f6f <br/>the text<br/>file", result);
+    }
+
+    @Test
+    public void readFilePreviewIsTruncated() throws Exception {
+        // the limit cuts the two bytes of the \u00f6 in the middle
+        String result = helper.readFilePreview(new File("src/test/resources/file.txt"), 9);
+        assertEquals("content<br/>" + FileHelper.TRUNCATED, result);
+    }
+
+    @Test
+    public void readFilePreviewIsCached() throws Exception {
+        File file = new File(directory + FILE);
+        helper.writeFile(file.getPath(), "first");
+        assertEquals("first", helper.readFilePreview(file, 1000));
+
+        // same size and modification date: the file is not read again
+        long lastModified = file.lastModified();
+        helper.writeFile(file.getPath(), "other");
+        file.setLastModified(lastModified);
+        assertEquals("first", helper.readFilePreview(file, 1000));
+
+        file.setLastModified(lastModified + 2000);
+        assertEquals("other", helper.readFilePreview(file, 1000));
+    }
+
     @Test(expected = FileNotFoundException.class)
     public void readFileToStringException() throws Exception {
         helper.readFile(new File("."));
@@ -135,6 +217,15 @@ public class FileHelperUnitTest {
         }
     }
 
+    @Test
+    public void doNotListDirectories() throws Exception {
+        createAFile("a.txt");
+        new File(directory + "assets").mkdirs();
+        List<LinkDocItem> items = helper.getListOfFile(directory + ".");
+        assertEquals(1, items.size());
+        assertEquals("a.txt", items.get(0).getName());
+    }
+
     @Test
     public void getListOfFileDirectoryIsEmpty() throws Exception {
         List<LinkDocItem> items = helper.getListOfFile(directory + ".");
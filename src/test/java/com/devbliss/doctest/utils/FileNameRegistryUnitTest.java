@@ -0,0 +1,80 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.devbliss.doctest.utils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import testutils.Utils;
+
+/**
+ * Unit test for {@link FileNameRegistry}
+ */
+public class FileNameRegistryUnitTest {
+
+    private final String directory = Utils.OUTPUT_DIRECTORY + "registry/";
+    private FileNameRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new FileNameRegistry();
+        Utils.deleteDirectory(new File(directory));
+        new File(directory).mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        Utils.deleteDirectory(new File(directory));
+    }
+
+    @Test
+    public void existingFileIsTaken() throws Exception {
+        createAFile("a.html");
+        assertTrue(registry.isTaken(directory, "a.html"));
+        assertFalse(registry.isTaken(directory, "a"));
+    }
+
+    @Test
+    public void registeredFileIsTaken() throws Exception {
+        assertFalse(registry.isTaken(directory, "a.html"));
+        registry.register(new File(directory + "a.html"));
+        assertTrue(registry.isTaken(directory, "a.html"));
+    }
+
+    @Test
+    public void fileWrittenByAnotherProcessIsTaken() throws Exception {
+        assertFalse(registry.isTaken(directory, "a.html"));
+        // written after the directory has been listed, without being registered
+        createAFile("a.html");
+        assertTrue(registry.isTaken(directory, "a.html"));
+    }
+
+    @Test
+    public void missingDirectory() throws Exception {
+        assertFalse(registry.isTaken(directory + "missing/", "a.html"));
+    }
+
+    private void createAFile(String fileName) throws Exception {
+        FileWriter fw = new FileWriter(new File(directory + fileName));
+        fw.close();
+    }
+}
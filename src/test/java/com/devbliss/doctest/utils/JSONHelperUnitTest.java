@@ -14,12 +14,21 @@
 
 package com.devbliss.doctest.utils;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.gson.GsonBuilder;
+
 /**
  * Unit tests for {@link JSONHelper}
  * 
@@ -66,4 +75,248 @@ public class JSONHelperUnitTest {
         assertFalse(helper.isJsonValid("''a'"));
     }
 
+    @Test
+    public void toJson() {
+        Pojo pojo = new Pojo();
+        assertEquals("{\"name\":\"name\",\"value\":1,\"secret\":\"secret\"}", helper.toJson(pojo));
+        assertEquals(new GsonBuilder().setPrettyPrinting().create().toJson(pojo), helper.toJson(
+                pojo, true));
+    }
+
+    @Test
+    public void toJsonAndSkipCertainFields() {
+        Pojo pojo = new Pojo();
+        assertEquals("{\"name\":\"name\"}", helper.toJsonAndSkipCertainFields(pojo, Arrays
+                .asList("value", "secret")));
+        // the same fields in another order
+        assertEquals("{\"name\":\"name\"}", helper.toJsonAndSkipCertainFields(pojo, Arrays
+                .asList("secret", "value", "secret")));
+        assertEquals("{\n  \"name\": \"name\",\n  \"value\": 1\n}", helper
+                .toJsonAndSkipCertainFields(pojo, Arrays.asList("secret"), true));
+    }
+
+    @Test
+    public void toJsonAndSkipCertainPaths() {
+        Container container = new Container();
+        assertEquals("{\"pojo\":{\"name\":\"name\",\"value\":1},\"pojos\":["
+                + "{\"name\":\"name\",\"value\":1,\"secret\":\"secret\"},"
+                + "{\"name\":\"name\",\"value\":1,\"secret\":\"secret\"}]}", helper
+                .toJsonAndSkipCertainFields(container, Arrays.asList("pojo.secret")));
+        assertEquals("{\"pojo\":{\"name\":\"name\"},\"pojos\":[{\"name\":\"name\"},"
+                + "{\"name\":\"name\"}]}", helper.toJsonAndSkipCertainFields(container, Arrays
+                .asList("secret", "*.value")));
+    }
+
+    @Test
+    public void skippedFieldsAreCopied() {
+        List<String> excludedFields = new ArrayList<String>(Arrays.asList("secret"));
+        helper.toJsonAndSkipCertainFields(new Pojo(), excludedFields);
+        excludedFields.add("name");
+        assertEquals("{\"value\":1}", helper.toJsonAndSkipCertainFields(new Pojo(),
+                excludedFields));
+        assertEquals("{\"name\":\"name\",\"value\":1}", helper.toJsonAndSkipCertainFields(
+                new Pojo(), Arrays.asList("secret")));
+    }
+
+    @Test
+    public void prettyPrintJson() {
+        assertEquals("{\n  \"abc\": \"a\"\n}", helper.prettyPrintJson("{'abc': 'a'}"));
+        assertEquals("''a'", helper.prettyPrintJson("''a'"));
+    }
+
+    @Test
+    public void prettyPrintJsonKeepsTheNumbersAsTheyAre() {
+        assertEquals("[\n  1.50,\n  1e5,\n  -0\n]", helper.prettyPrintJson("[1.50,1e5,-0]"));
+    }
+
+    @Test
+    public void prettyPrintJsonSkipsTheNullMembers() {
+        assertEquals("{\n  \"b\": [\n    null\n  ]\n}", helper
+                .prettyPrintJson("{\"a\":null,\"b\":[null]}"));
+    }
+
+    @Test
+    public void prettyPrintJsonKeepsTheLastValueOfADuplicateName() {
+        assertEquals("{\n  \"a\": 2,\n  \"b\": 3\n}", helper
+                .prettyPrintJson("{\"a\":1,\"b\":3,\"a\":2}"));
+    }
+
+    @Test
+    public void prettyPrintJsonEscapesHtml() {
+        assertEquals("\"\\u003cb\\u003e\"", helper.prettyPrintJson("'<b>'"));
+    }
+
+    @Test
+    public void prettyPrintInvalidJson() {
+        assertEquals("{\"a\":1}{}", helper.prettyPrintJson("{\"a\":1}{}"));
+        assertEquals("{\"a\":", helper.prettyPrintJson("{\"a\":"));
+        assertEquals("hello world", helper.prettyPrintJson("hello world"));
+        assertEquals("null", helper.prettyPrintJson("null"));
+        assertEquals(null, helper.prettyPrintJson(null));
+    }
+
+    @Test
+    public void prettyPrintJsonWithinTheArrayLimit() {
+        assertEquals("[\n  1,\n  2,\n  \"\u2026 3 more elements\"\n]", helper.prettyPrintJson(
+                "[1,2,3,4,5]", 0, 2, 0));
+        assertEquals("[\n  1,\n  2\n]", helper.prettyPrintJson("[1,2]", 0, 2, 0));
+    }
+
+    @Test
+    public void prettyPrintJsonWithinTheDepthLimit() {
+        assertEquals("{\n  \"a\": {\n    \"b\": \"{\u2026}\",\n    \"c\": \"[\u2026]\"\n  }\n}",
+                helper.prettyPrintJson("{\"a\":{\"b\":{\"d\":1},\"c\":[1]}}", 0, 0, 2));
+    }
+
+    @Test
+    public void prettyPrintJsonWithinTheLengthLimit() {
+        String result = helper.prettyPrintJson("{\"a\":[1,2,3,4,5,6,7,8,9],\"b\":2}", 15, 0, 0);
+        assertEquals("{\n  \"a\": [\n    1,\n    \"\u2026 truncated, the payload has 31 characters\"\n"
+                + "  ]\n}", result);
+        // still a valid json
+        assertTrue(helper.isJsonValid(result));
+    }
+
+    @Test
+    public void prettyPrintLongStringsWithinTheLengthLimit() {
+        assertEquals("\"hello\u2026 6 more characters\"", helper.prettyPrintJson("'hello world'", 5,
+                0, 0));
+
+        String result = helper.prettyPrintJson("{\"a\":\"hello world\",\"b\":2}", 6, 0, 0);
+        assertEquals("{\n  \"a\": \"hello\u2026 6 more characters\",\n"
+                + "  \"\u2026\": \"\u2026 truncated, the payload has 25 characters\"\n}", result);
+        assertTrue(helper.isJsonValid(result));
+    }
+
+    @Test
+    public void prettyPrintInvalidJsonWithinTheLengthLimit() {
+        assertEquals("hello\n\u2026 6 more characters", helper.prettyPrintJson("hello world", 5, 0,
+                0));
+    }
+
+    @Test
+    public void looksLikeJson() {
+        assertTrue(helper.looksLikeJson(" \n {'abc': 'a'}"));
+        assertTrue(helper.looksLikeJson("[1]"));
+        assertTrue(helper.looksLikeJson("\"abc\""));
+        assertTrue(helper.looksLikeJson("-12.5"));
+        assertTrue(helper.looksLikeJson("3"));
+        assertTrue(helper.looksLikeJson("true"));
+        assertTrue(helper.looksLikeJson("\uFEFF{}"));
+    }
+
+    @Test
+    public void doesNotLookLikeJson() {
+        assertFalse(helper.looksLikeJson(null));
+        assertFalse(helper.looksLikeJson("  "));
+        assertFalse(helper.looksLikeJson("plain text"));
+        assertFalse(helper.looksLikeJson("<?xml version=\"1.0\"?><a/>"));
+        assertFalse(helper.looksLikeJson("name;value"));
+        assertFalse(helper.looksLikeJson("nothing"));
+        assertFalse(helper.looksLikeJson("fail"));
+    }
+
+    @Test
+    public void truncate() {
+        assertEquals("hello world", helper.truncate("hello world", 0));
+        assertEquals("hello world", helper.truncate("hello world", 11));
+        assertEquals("hello\n\u2026 6 more characters", helper.truncate("hello world", 5));
+        assertEquals(null, helper.truncate(null, 5));
+    }
+
+    @Test
+    public void jsonWithTrailingContentIsNotValid() {
+        assertFalse(helper.isJsonValid("{\"a\":1}{}"));
+        assertFalse(helper.isJsonValid("{\"a\":"));
+    }
+
+    @Test
+    public void compareEqualObjects() {
+        JsonComparison comparison = helper.compareJson(new Pojo(), new Pojo(), null);
+        assertTrue(comparison.isEqual());
+        assertEquals(helper.toJson(new Pojo(), true), comparison.getExpectedJson());
+    }
+
+    @Test
+    public void compareObjectsWhateverTheOrderOfTheFields() {
+        Map<String, Object> expected = new LinkedHashMap<String, Object>();
+        expected.put("a", 1);
+        expected.put("b", 2);
+        Map<String, Object> result = new LinkedHashMap<String, Object>();
+        result.put("b", 2);
+        result.put("a", 1);
+        assertTrue(helper.compareJson(expected, result, null).isEqual());
+    }
+
+    @Test
+    public void compareDifferentObjects() {
+        Pojo result = new Pojo();
+        result.value = 2;
+        JsonComparison comparison = helper.compareJson(new Pojo(), result, null);
+        assertFalse(comparison.isEqual());
+        assertEquals("$.value: expected 1 but was 2", comparison.getDifference());
+        assertEquals(helper.toJson(new Pojo(), true), comparison.getExpectedJson());
+        assertEquals(helper.toJson(result, true), comparison.getActualJson());
+    }
+
+    @Test
+    public void compareNestedObjects() {
+        Container expected = new Container();
+        Container result = new Container();
+        result.pojos.get(1).secret = "other";
+        assertEquals("$.pojos[1].secret: expected \"secret\" but was \"other\"", helper
+                .compareJson(expected, result, null).getDifference());
+
+        result.pojos.remove(0);
+        assertEquals("$.pojos: expected 2 elements but was 1", helper.compareJson(expected,
+                result, null).getDifference());
+    }
+
+    @Test
+    public void compareMissingAndUnexpectedFields() {
+        Pojo result = new Pojo();
+        result.secret = null;
+        assertEquals("$.secret: expected \"secret\" but was missing", helper.compareJson(
+                new Pojo(), result, null).getDifference());
+        assertEquals("$.secret: unexpected \"secret\"", helper.compareJson(result, new Pojo(),
+                null).getDifference());
+    }
+
+    @Test
+    public void compareExcludingFields() {
+        Container expected = new Container();
+        Container result = new Container();
+        result.pojos.get(1).secret = "other";
+        result.pojo.secret = "other";
+
+        // excluded at any depth
+        JsonComparison comparison = helper.compareJson(expected, result, Arrays.asList("secret"));
+        assertTrue(comparison.isEqual());
+        assertFalse(comparison.getExpectedJson().contains("secret"));
+
+        // excluded in the elements of the array only
+        comparison = helper.compareJson(expected, result, Arrays.asList("pojos.secret"));
+        assertEquals("$.pojo.secret: expected \"secret\" but was \"other\"", comparison
+                .getDifference());
+
+        comparison =
+                helper.compareJson(expected, result, Arrays.asList("pojos.secret", "pojo.secret"));
+        assertTrue(comparison.isEqual());
+        assertEquals(helper.toJsonAndSkipCertainFields(expected, Arrays.asList("secret"), true),
+                comparison.getExpectedJson());
+    }
+
+    @SuppressWarnings("unused")
+    private static class Container {
+        private final Pojo pojo = new Pojo();
+        private final List<Pojo> pojos = new ArrayList<Pojo>(Arrays.asList(new Pojo(), new Pojo()));
+    }
+
+    @SuppressWarnings("unused")
+    private static class Pojo {
+        private final String name = "name";
+        private int value = 1;
+        private String secret = "secret";
+    }
+
 }
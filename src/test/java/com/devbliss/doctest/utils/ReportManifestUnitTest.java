@@ -0,0 +1,135 @@
+/*
+ * Copyright 2013, devbliss GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.devbliss.doctest.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import testutils.Utils;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * Unit test for {@link ReportManifest}
+ */
+public class ReportManifestUnitTest {
+
+    private final String directory = Utils.OUTPUT_DIRECTORY + "manifest/";
+    private ReportManifest manifest;
+
+    @Before
+    public void setUp() {
+        manifest = new ReportManifest();
+        Utils.deleteDirectory(new File(directory));
+        new File(directory).mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        Utils.deleteDirectory(new File(directory));
+    }
+
+    @Test
+    public void readMissingManifest() throws Exception {
+        assertTrue(manifest.read(directory).isEmpty());
+    }
+
+    @Test
+    public void appendAndRead() throws Exception {
+        createReport("a.html");
+        createReport("b.html");
+        manifest.append(directory, new ReportManifest.Entry("a.html", "a", 3, 1, 10L));
+        manifest.append(directory, new ReportManifest.Entry("b.html", "b", 5, 2, 20L));
+
+        List<ReportManifest.Entry> entries = manifest.read(directory);
+        assertEquals(2, entries.size());
+        assertEquals("a.html", entries.get(0).getFileName());
+        assertEquals("a", entries.get(0).getTitle());
+        assertEquals(3, entries.get(0).getItems());
+        assertEquals(1, entries.get(0).getRequests());
+        assertEquals(10L, entries.get(0).getTimestamp());
+        assertEquals("b.html", entries.get(1).getFileName());
+    }
+
+    @Test
+    public void keepTheLastEntryOfAReport() throws Exception {
+        createReport("a.html");
+        createReport("b.html");
+        manifest.append(directory, new ReportManifest.Entry("a.html", "a", 3, 1, 10L));
+        manifest.append(directory, new ReportManifest.Entry("b.html", "b", 5, 2, 20L));
+        manifest.append(directory, new ReportManifest.Entry("a.html", "a", 4, 1, 30L));
+
+        List<ReportManifest.Entry> entries = manifest.read(directory);
+        assertEquals(2, entries.size());
+        assertEquals("a.html", entries.get(0).getFileName());
+        assertEquals(4, entries.get(0).getItems());
+    }
+
+    @Test
+    public void ignoreBrokenLines() throws Exception {
+        createReport("a.html");
+        manifest.append(directory, new ReportManifest.Entry("a.html", "a", 3, 1, 10L));
+        FileWriter writer = new FileWriter(new File(directory, ReportManifest.MANIFEST_FILE), true);
+        writer.write("{\"fileName\":\"b.ht");
+        writer.close();
+
+        List<ReportManifest.Entry> entries = manifest.read(directory);
+        assertEquals(1, entries.size());
+    }
+
+    @Test
+    public void dropTheEntriesOfDeletedReports() throws Exception {
+        createReport("a.html");
+        manifest.append(directory, new ReportManifest.Entry("a.html", "a", 3, 1, 10L));
+        manifest.append(directory, new ReportManifest.Entry("b.html", "b", 5, 2, 20L));
+
+        List<ReportManifest.Entry> entries = manifest.read(directory);
+        assertEquals(1, entries.size());
+        assertEquals("a.html", entries.get(0).getFileName());
+    }
+
+    @Test
+    public void compactTheManifest() throws Exception {
+        createReport("a.html");
+        for (int i = 0; i < 10; i++) {
+            manifest.append(directory, new ReportManifest.Entry("a.html", "a", i, 0, i));
+        }
+        manifest.append(directory, new ReportManifest.Entry("b.html", "b", 5, 2, 20L));
+
+        manifest.read(directory);
+        File file = new File(directory, ReportManifest.MANIFEST_FILE);
+        assertEquals(1, Files.readLines(file, Charsets.UTF_8).size());
+        List<ReportManifest.Entry> entries = manifest.read(directory);
+        assertEquals(1, entries.size());
+        assertEquals(9, entries.get(0).getItems());
+
+        // new entries are appended after the compacted ones
+        manifest.append(directory, new ReportManifest.Entry("a.html", "a", 10, 0, 10L));
+        assertEquals(10, manifest.read(directory).get(0).getItems());
+    }
+
+    private void createReport(String fileName) throws Exception {
+        new File(directory, fileName).createNewFile();
+    }
+}
@@ -28,6 +28,7 @@ import java.util.Map;
 
 import org.apache.http.HttpStatus;
 import org.apache.http.client.utils.URIBuilder;
+import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -36,6 +37,7 @@ import org.mockito.runners.MockitoJUnitRunner;
 
 import com.devbliss.doctest.DocTest;
 import com.devbliss.doctest.LogicDocTest;
+import com.devbliss.doctest.httpfactory.JsonPayload;
 import com.devbliss.doctest.httpfactory.PostUploadWithoutRedirectImpl;
 
 import de.devbliss.apitester.ApiRequest;
@@ -62,6 +64,8 @@ public class RequestsIntegrationTest extends DocTest {
             "{'abc':'123', 'cde': {'start': 'today', 'end':'tomorrow'}}";
     private static final String PAYLOAD_ARRAY =
             "[{'objectId': 123},{'objectId':4567}]";
+    private static final JsonPayload OBJECT_PAYLOAD = new JsonPayload(
+            "{\"name\":\"test object\",\"points\":12,\"properties\":[\"prop1\",\"prop2\"]}");
     private static final String REASON_PHRASE = "This is not a normal response code";
     private static final String HEADER_VALUE11 = "application/json";
     private static final String HEADER_VALUE12 = "text/html";
@@ -78,6 +82,11 @@ public class RequestsIntegrationTest extends DocTest {
         DocTest.setApi(API);
     }
 
+    @AfterClass
+    public static void afterClass() {
+        DocTest.setApi(null);
+    }
+
     @Override
     protected String getFileName() {
         return "HttpRequests";
@@ -163,7 +172,7 @@ public class RequestsIntegrationTest extends DocTest {
         apiRequest = new ApiRequest(uri, "post", headers, cookies);
         apiResponse = new ApiResponse(HttpStatus.SC_CREATED, REASON_PHRASE, PAYLOAD_OBJECT, headers);
         context = new Context(apiResponse, apiRequest);
-        when(API.post(uri, obj)).thenReturn(context);
+        when(API.post(uri, OBJECT_PAYLOAD)).thenReturn(context);
 
         sayNextSection("Making a post request");
         ApiResponse response = makePostRequest(uri, obj);
@@ -177,7 +186,7 @@ public class RequestsIntegrationTest extends DocTest {
         apiRequest = new ApiRequest(uri, "put", headers, cookies);
         apiResponse = new ApiResponse(HttpStatus.SC_NO_CONTENT, REASON_PHRASE, PAYLOAD_OBJECT, headers);
         context = new Context(apiResponse, apiRequest);
-        when(API.put(uri, obj)).thenReturn(context);
+        when(API.put(uri, OBJECT_PAYLOAD)).thenReturn(context);
 
         sayNextSection("Making a put request with encöding chäracters");
         ApiResponse response = makePutRequest(uri, obj);
@@ -240,7 +249,7 @@ public class RequestsIntegrationTest extends DocTest {
         apiRequest = new ApiRequest(uri, "put", headers, cookies);
         apiResponse = new ApiResponse(HttpStatus.SC_OK, "", PAYLOAD_OBJECT, headers);
         context = new Context(apiResponse, apiRequest);
-        when(API.put(uri, obj)).thenReturn(context);
+        when(API.put(uri, OBJECT_PAYLOAD)).thenReturn(context);
 
         response = makePutRequest(uri, obj);
 